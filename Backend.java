@@ -0,0 +1,691 @@
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// **********************************************************************
+// Backend
+//
+// Translates the IR of a program (see IrProgram.java) into MIPS code,
+// written through Codegen to the sink given to genProgram.
+//
+// Calls pass the first arguments in $a0-$a3 (Codegen.ARGS), the others
+// are stored by the caller below its $sp, right where the callee expects
+// them. The result is returned in $v0. Frame of a method:
+//
+//      $fp + 8      saved $fp
+//      $fp + 4      saved $ra
+//      $fp - 4*i    parameter i, if there are more than four (the
+//                   callee stores $a0-$a3 here if it does not keep them
+//                   in registers)
+//      ...          spilled temps, locals and parameters, saved $s
+//                   registers
+//      $sp          next free word
+//
+// A leaf method (one that calls nothing) without stack arguments saves
+// neither $fp nor $ra; its slots are addressed off $sp, which does not
+// move while it runs.
+//
+// Temps, locals and parameters are kept in $s0-$s7 (Codegen.SAVED) and
+// $t0-$t7 (Codegen.TEMPS) by a linear scan allocator, see allocate;
+// $t8 and $t9 are scratch registers for operands that live in memory.
+// $t registers that are live across a call are pushed before it and
+// popped afterwards, $s registers are saved once by the method that
+// uses them. A call that is directly returned from reuses the frame of
+// the caller: the frame is torn down and the callee is entered with j.
+//
+// int arithmetic wraps around on overflow (addu, subu, mul), which is
+// what the optimizer assumes when it computes values at compile time.
+// **********************************************************************
+public class Backend {
+
+    // **********************************************************************
+    // genProgram
+    //    given:  the IR of the whole program, the sink for the code
+    //    do:     generate the runtime support, the entry code and every
+    //            method
+    // **********************************************************************
+    public static void genProgram(IrProgram program, PrintWriter out) {
+        Codegen.setOutput(out);
+        Codegen.addString("_true", "true");
+        Codegen.addString("_false", "false");
+        Codegen.addString("_newLine", "\n");
+
+        Codegen.textSegment();
+        //value in $a0, address of the string is returned in $a0
+        Codegen.genLabel("_printBool");
+        Codegen.generate("beq", "$a0", "0", "_printFalse");
+        Codegen.generate("la", "$a0", "_true");
+        Codegen.generate("j", "_printTrue");
+        Codegen.genLabel("_printFalse");
+        Codegen.generate("la", "$a0", "_false");
+        Codegen.genLabel("_printTrue");
+        Codegen.generate("jr $ra");
+
+        //base in $a0, exponent in $a1, $a0 ** $a1 is returned in $v0
+        //(square and multiply; exponents below 1 give 1)
+        Codegen.genLabel("_pow");
+        Codegen.generate("li", "$v0", 1);
+        Codegen.genLabel("_powLoop");
+        Codegen.generate("ble", "$a1", "0", "_powEnd");
+        Codegen.generate("and", "$v1", "$a1", 1);
+        Codegen.generate("beq", "$v1", "0", "_powSquare");
+        Codegen.generate("mul", "$v0", "$v0", "$a0");
+        Codegen.genLabel("_powSquare");
+        Codegen.generate("mul", "$a0", "$a0", "$a0");
+        Codegen.generate("sra", "$a1", "$a1", 1);
+        Codegen.generate("j", "_powLoop");
+        Codegen.genLabel("_powEnd");
+        Codegen.generate("jr $ra");
+
+        Codegen.genLabel("main");
+        Codegen.genLabel(program.getName());
+        globalLabels.clear();
+        for (SymbolTable.Sym sym : program.getGlobals()) {
+            String label = "_global_" + sym.name();
+            globalLabels.put(sym, label);
+            Codegen.addWord(label, program.getInitialValue(sym));
+        }
+        Codegen.generate("jal", "_main");
+        Codegen.generate("li", "$v0", 10);
+        Codegen.generate("syscall");
+
+        for (IrMethod method : program.getMethods()) {
+            new Backend(method).genMethod();
+        }
+        Codegen.genDataSegment();
+        out.flush();
+    }
+
+    // globals are words in the data segment, addressed by their label
+    private static Map<SymbolTable.Sym, String> globalLabels = new HashMap<>();
+
+    private Backend(IrMethod method) {
+        myMethod = method;
+    }
+
+    // label of a method in the generated code
+    public static String methodLabel(String name) {
+        return name.equals("main") ? "_main" : name;
+    }
+
+    private void genMethod() {
+        if (myMethod.getParams().size() > Codegen.ARGS.length) {
+            //the caller stores the stack arguments at fixed offsets
+            for (SymbolTable.Sym sym : myMethod.getParams()) {
+                mySlots.put(new Var(sym), newSlot());
+            }
+        }
+        allocate();
+        //a leaf keeps $ra, and without stack arguments its frame is
+        //addressed off $sp
+        myFrameless = isLeaf(myMethod) && myMethod.getParams().size() <= Codegen.ARGS.length;
+
+        Codegen.genLabel(methodLabel(myMethod.getName()));
+        String fastPath = myFrameless ? null : genFastPathTest();
+        if (!myFrameless) {
+            Codegen.genPush(Codegen.FP);
+            Codegen.genPush("$ra");
+            Codegen.generate("move", Codegen.FP, Codegen.SP);
+        }
+        if (mySlotCount > 0) {
+            //the whole frame at once: params, spilled locals and temps,
+            //saved registers
+            Codegen.generateWithComment("subu", "Frame", Codegen.SP, Codegen.SP,
+                    "" + 4 * mySlotCount);
+        }
+        for (Map.Entry<String, Integer> entry : mySaved.entrySet()) {
+            genStore(entry.getKey(), slot(entry.getValue()));
+        }
+        //move the parameters that are read to where they live
+        List<SymbolTable.Sym> params = myMethod.getParams();
+        Set<Operand> entry = myLiveness.getLiveIn(myMethod.getBlocks().get(0));
+        for (int i = 0; i < params.size(); i++) {
+            Var param = new Var(params.get(i));
+            if (!entry.contains(param)) continue;
+            String reg = myRegs.get(param);
+            if (i < Codegen.ARGS.length) {
+                if (reg != null) {
+                    Codegen.generate("move", reg, Codegen.ARGS[i]);
+                } else {
+                    genStore(Codegen.ARGS[i], slot(mySlots.get(param)));
+                }
+            } else if (reg != null) {
+                genLoad(reg, slot(mySlots.get(param)));
+            }
+        }
+
+        List<BasicBlock> blocks = myMethod.getBlocks();
+        Set<BasicBlock> targets = jumpedTo(blocks);
+        int pos = 0;
+        for (int i = 0; i < blocks.size(); i++) {
+            BasicBlock block = blocks.get(i);
+            myNext = i + 1 < blocks.size() ? blocks.get(i + 1) : null;
+            if (targets.contains(block)) Codegen.genLabel(block.getLabel());
+            List<Instr> instrs = block.getInstrs();
+            for (int j = 0; j < instrs.size(); j++) {
+                if (isTailCall(instrs, j)) {
+                    genTailCall((CallInstr) instrs.get(j));
+                    //the return is part of the jump
+                    j++;
+                    pos += 2;
+                    continue;
+                }
+                genInstr(instrs.get(j), pos++);
+            }
+        }
+        if (fastPath != null) {
+            genFastPath(fastPath);
+        }
+    }
+
+    // the blocks that the code jumps or branches to, the only ones that
+    // get a label (see genInstr and genBranch for the jumps to the next
+    // block that are left out)
+    private static Set<BasicBlock> jumpedTo(List<BasicBlock> blocks) {
+        Set<BasicBlock> targets = new HashSet<>();
+        for (int i = 0; i < blocks.size(); i++) {
+            BasicBlock next = i + 1 < blocks.size() ? blocks.get(i + 1) : null;
+            for (Instr instr : blocks.get(i).getInstrs()) {
+                if (instr instanceof JumpInstr && ((JumpInstr) instr).getTarget() != next) {
+                    targets.add(((JumpInstr) instr).getTarget());
+                } else if (instr instanceof BranchInstr) {
+                    BranchInstr branch = (BranchInstr) instr;
+                    if (branch.getIfTrue() != next) targets.add(branch.getIfTrue());
+                    if (branch.getIfFalse() != next || branch.getIfTrue() == next) {
+                        targets.add(branch.getIfFalse());
+                    }
+                }
+            }
+        }
+        return targets;
+    }
+
+    // true if the method makes no call (the runtime routines included),
+    // so $ra is not changed while it runs
+    private static boolean isLeaf(IrMethod method) {
+        for (BasicBlock block : method.getBlocks()) {
+            for (Instr instr : block.getInstrs()) {
+                if (instr instanceof CallInstr
+                        || instr instanceof BinInstr && ((BinInstr) instr).getOp() == Op.POW
+                        || instr instanceof PrintInstr
+                            && ((PrintInstr) instr).getType() == Types.BoolType) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    // **********************************************************************
+    // fast path (shrink wrapping)
+    //    a method starting with a test of a parameter that may return a
+    //    constant or a parameter right away, like
+    //        if (n < 2) { return n; } ...
+    //    does that test on the argument registers before the prologue,
+    //    and returns without building a frame
+    // **********************************************************************
+
+    // the block returned by the fast path, or null
+    private ReturnInstr fastReturn() {
+        List<Instr> first = myMethod.getBlocks().get(0).getInstrs();
+        if (first.size() != 1 || !(first.get(0) instanceof BranchInstr)) return null;
+        BranchInstr branch = (BranchInstr) first.get(0);
+        if (argReg(branch.getSrcs()[0]) == null || !(branch.getSrcs()[1] instanceof Const)) {
+            return null;
+        }
+        for (BasicBlock target : new BasicBlock[]{branch.getIfTrue(), branch.getIfFalse()}) {
+            List<Instr> instrs = target.getInstrs();
+            if (instrs.size() != 1 || !(instrs.get(0) instanceof ReturnInstr)) continue;
+            Operand value = ((ReturnInstr) instrs.get(0)).getValue();
+            if (value == null || value instanceof Const || argReg(value) != null) {
+                return (ReturnInstr) instrs.get(0);
+            }
+        }
+        return null;
+    }
+
+    // argument register holding o on entry, if o is such a parameter
+    private String argReg(Operand o) {
+        int i = o instanceof Var ? myMethod.getParams().indexOf(((Var) o).getSym()) : -1;
+        return i >= 0 && i < Codegen.ARGS.length ? Codegen.ARGS[i] : null;
+    }
+
+    // branch to the fast path if it is taken; returns its label or null
+    private String genFastPathTest() {
+        ReturnInstr ret = fastReturn();
+        if (ret == null) return null;
+        BranchInstr branch = (BranchInstr) myMethod.getBlocks().get(0).getInstrs().get(0);
+        boolean ifTrue = branch.getIfTrue().getInstrs().get(0) == ret;
+        int op = ifTrue ? branch.getOp() : negate(branch.getOp());
+        String label = myMethod.getProgram().newLabel();
+        Codegen.generate(branchOp(op), argReg(branch.getSrcs()[0]),
+                "" + ((Const) branch.getSrcs()[1]).getValue(), label);
+        myFastReturn = ret;
+        return label;
+    }
+
+    private void genFastPath(String label) {
+        Codegen.genLabel(label);
+        Operand value = myFastReturn.getValue();
+        if (value instanceof Const) {
+            Codegen.generate("li", Codegen.RESULT, ((Const) value).getValue());
+        } else if (value != null) {
+            Codegen.generate("move", Codegen.RESULT, argReg(value));
+        }
+        Codegen.generate("jr", "$ra");
+    }
+
+    // **********************************************************************
+    // register allocation
+    //    temps, locals and parameters live from the first to the last
+    //    position where they are live (see Liveness), in the linear order
+    //    of the instructions. The intervals are handed out by linear scan:
+    //    an interval that contains a call prefers a callee saved register
+    //    ($s0-$s7), any other one a temp register ($t0-$t7). When none is
+    //    free, the interval ending last is spilled to a frame slot.
+    // **********************************************************************
+    private void allocate() {
+        myLiveness = new Liveness(myMethod);
+        myIntervals = new HashMap<>();
+        List<Integer> calls = new ArrayList<>();
+        List<BasicBlock> blocks = myMethod.getBlocks();
+        int start = 0;
+        for (BasicBlock block : blocks) {
+            List<Instr> instrs = block.getInstrs();
+            int end = start + instrs.size() - 1;
+            Set<Operand> live = new HashSet<>(myLiveness.getLiveOut(block));
+            for (Operand o : live) extend(o, end);
+            for (int pos = end; pos >= start; pos--) {
+                Instr instr = instrs.get(pos - start);
+                if (instr instanceof CallInstr) calls.add(pos);
+                Operand dst = instr.getDst();
+                if (dst != null && dst.isLocal()) extend(dst, pos);
+                for (Operand src : instr.getSrcs()) {
+                    if (src.isLocal()) extend(src, pos);
+                }
+                Liveness.transfer(instr, live);
+            }
+            for (Operand o : live) extend(o, block == blocks.get(0) ? -1 : start);
+            start = end + 1;
+        }
+
+        List<Operand> order = new ArrayList<>(myIntervals.keySet());
+        order.sort((a, b) -> myIntervals.get(a)[0] - myIntervals.get(b)[0]);
+        List<String> freeSaved = new ArrayList<>(Arrays.asList(Codegen.SAVED));
+        List<String> freeTemps = new ArrayList<>(Arrays.asList(Codegen.TEMPS));
+        List<Operand> active = new ArrayList<>();
+        for (Operand o : order) {
+            int[] interval = myIntervals.get(o);
+            for (int i = active.size() - 1; i >= 0; i--) {
+                Operand other = active.get(i);
+                if (myIntervals.get(other)[1] < interval[0]) {
+                    active.remove(i);
+                    String reg = myRegs.get(other);
+                    (isSaved(reg) ? freeSaved : freeTemps).add(0, reg);
+                }
+            }
+            boolean acrossCall = false;
+            for (int call : calls) {
+                acrossCall |= interval[0] < call && call < interval[1];
+            }
+            List<String> first = acrossCall ? freeSaved : freeTemps;
+            List<String> second = acrossCall ? freeTemps : freeSaved;
+            if (!first.isEmpty() || !second.isEmpty()) {
+                myRegs.put(o, (!first.isEmpty() ? first : second).remove(0));
+                active.add(o);
+                continue;
+            }
+            Operand last = o;
+            for (Operand other : active) {
+                if (myIntervals.get(other)[1] > myIntervals.get(last)[1]) last = other;
+            }
+            if (last != o) {
+                myRegs.put(o, myRegs.remove(last));
+                active.remove(last);
+                active.add(o);
+            }
+            if (!mySlots.containsKey(last)) mySlots.put(last, newSlot());
+        }
+
+        //callee saved registers are saved only if they are used
+        for (String reg : Codegen.SAVED) {
+            if (myRegs.containsValue(reg)) mySaved.put(reg, newSlot());
+        }
+    }
+
+    // let the interval of o include pos
+    private void extend(Operand o, int pos) {
+        int[] interval = myIntervals.get(o);
+        if (interval == null) {
+            myIntervals.put(o, new int[]{pos, pos});
+        } else {
+            interval[0] = Math.min(interval[0], pos);
+            interval[1] = Math.max(interval[1], pos);
+        }
+    }
+
+    private static boolean isSaved(String reg) {
+        return Arrays.asList(Codegen.SAVED).contains(reg);
+    }
+
+    // reserve a word in the frame, return its offset from $fp
+    private int newSlot() {
+        return 4 * mySlotCount++;
+    }
+
+    // **********************************************************************
+    // operands
+    // **********************************************************************
+
+    // register holding the value of o, loaded into scratch if necessary
+    private String use(Operand o, String scratch) {
+        if (myRegs.containsKey(o)) {
+            return myRegs.get(o);
+        }
+        if (o instanceof Temp || o instanceof Var) {
+            genLoad(scratch, address(o));
+        } else if (o instanceof Const) {
+            Codegen.generate("li", scratch, ((Const) o).getValue());
+        } else {
+            Codegen.generate("la", scratch, Codegen.stringLabel(((StrConst) o).getValue()));
+        }
+        return scratch;
+    }
+
+    // register the value for d is computed in
+    private String def(Operand d) {
+        if (myRegs.containsKey(d)) {
+            return myRegs.get(d);
+        }
+        return "$t8";
+    }
+
+    // store the value computed into reg (see def) if d lives in memory
+    private void store(Operand d, String reg) {
+        if (!myRegs.containsKey(d)) {
+            genStore(reg, address(d));
+        }
+    }
+
+    // memory operand of a temp or variable that is not in a register:
+    // the label of a global, a frame slot otherwise
+    private String address(Operand o) {
+        if (o instanceof Var && ((Var) o).isGlobal()) {
+            return globalLabels.get(((Var) o).getSym());
+        }
+        return slot(mySlots.get(o));
+    }
+
+    // memory operand of the frame slot at the given offset ($sp does not
+    // move in a method without $fp, the slots are right above it)
+    private String slot(int offset) {
+        if (myFrameless) {
+            return 4 * mySlotCount - offset + "(" + Codegen.SP + ")";
+        }
+        return -offset + "(" + Codegen.FP + ")";
+    }
+
+    private void genLoad(String reg, String address) {
+        Codegen.generate("lw", reg, address);
+    }
+
+    private void genStore(String reg, String address) {
+        Codegen.generate("sw", reg, address);
+    }
+
+    // **********************************************************************
+    // instructions
+    // **********************************************************************
+    private void genInstr(Instr instr, int pos) {
+        if (instr instanceof MoveInstr) {
+            Operand src = instr.getSrcs()[0];
+            String dest = def(instr.getDst());
+            if (src instanceof Const) {
+                Codegen.generate("li", dest, ((Const) src).getValue());
+            } else {
+                String reg = use(src, dest);
+                if (!reg.equals(dest)) Codegen.generate("move", dest, reg);
+            }
+            store(instr.getDst(), dest);
+        } else if (instr instanceof BinInstr) {
+            genBinary((BinInstr) instr);
+        } else if (instr instanceof UnInstr) {
+            String src = use(instr.getSrcs()[0], "$t8");
+            String dest = def(instr.getDst());
+            if (((UnInstr) instr).getOp() == Op.NEG) {
+                Codegen.generate("subu", dest, "$0", src);
+            } else {
+                Codegen.generate("xori", dest, src, 1);
+            }
+            store(instr.getDst(), dest);
+        } else if (instr instanceof CallInstr) {
+            genCall((CallInstr) instr, pos);
+        } else if (instr instanceof PrintInstr) {
+            genPrint((PrintInstr) instr);
+        } else if (instr instanceof JumpInstr) {
+            BasicBlock target = ((JumpInstr) instr).getTarget();
+            if (target != myNext) Codegen.generate("j", target.getLabel());
+        } else if (instr instanceof BranchInstr) {
+            genBranch((BranchInstr) instr);
+        } else if (instr instanceof ReturnInstr) {
+            Operand value = ((ReturnInstr) instr).getValue();
+            if (value != null) {
+                String reg = use(value, Codegen.RESULT);
+                if (!reg.equals(Codegen.RESULT)) Codegen.generate("move", Codegen.RESULT, reg);
+            }
+            genEpilogue();
+            Codegen.generate("jr", "$ra");
+        }
+    }
+
+    // restore the saved registers and the frame of the caller
+    private void genEpilogue() {
+        for (Map.Entry<String, Integer> entry : mySaved.entrySet()) {
+            genLoad(entry.getKey(), slot(entry.getValue()));
+        }
+        if (myFrameless) {
+            if (mySlotCount > 0) {
+                Codegen.generate("addu", Codegen.SP, Codegen.SP, "" + 4 * mySlotCount);
+            }
+            return;
+        }
+        Codegen.generate("move", Codegen.SP, Codegen.FP);
+        Codegen.genPop("$ra");
+        Codegen.genPop(Codegen.FP);
+    }
+
+    private void genBinary(BinInstr instr) {
+        int op = instr.getOp();
+        Operand a = instr.getSrcs()[0];
+        Operand b = instr.getSrcs()[1];
+        if (a instanceof Const && !(b instanceof Const) && commutes(op)) {
+            a = instr.getSrcs()[1];
+            b = instr.getSrcs()[0];
+        }
+        String left = use(a, "$t8");
+        //constants are given as immediates where the assembler takes them
+        String right = b instanceof Const && takesImmediate(op, ((Const) b).getValue())
+                ? "" + ((Const) b).getValue() : use(b, "$t9");
+        String dest = def(instr.getDst());
+        if (Op.isCompare(op)) {
+            Codegen.genCompare(branchOp(op), dest, left, right);
+        } else if (op == Op.MULHI) {
+            Codegen.generate("mult", left, right);
+            Codegen.generate("mfhi", dest);
+        } else if (op == Op.POW) {
+            Codegen.generate("move", "$a0", left);
+            Codegen.generate("move", "$a1", right);
+            Codegen.generate("jal", "_pow");
+            Codegen.generate("move", dest, "$v0");
+        } else {
+            Codegen.generate(arithOp(op), dest, left, right);
+        }
+        store(instr.getDst(), dest);
+    }
+
+    private void genCall(CallInstr call, int pos) {
+        //the callee may use every temp register, save the live ones
+        List<String> saved = new ArrayList<>();
+        for (Map.Entry<Operand, String> entry : myRegs.entrySet()) {
+            int[] interval = myIntervals.get(entry.getKey());
+            if (interval[0] < pos && interval[1] > pos && !isSaved(entry.getValue())) {
+                saved.add(entry.getValue());
+            }
+        }
+        for (String reg : saved) {
+            Codegen.genPush(reg);
+        }
+        Operand[] args = call.getSrcs();
+        for (int i = Codegen.ARGS.length; i < args.length; i++) {
+            //lands in the slot of parameter i of the callee
+            String reg = use(args[i], "$t8");
+            Codegen.generateIndexed("sw", reg, Codegen.SP, -(4 * i + 8));
+        }
+        for (int i = 0; i < args.length && i < Codegen.ARGS.length; i++) {
+            String reg = use(args[i], Codegen.ARGS[i]);
+            if (!reg.equals(Codegen.ARGS[i])) Codegen.generate("move", Codegen.ARGS[i], reg);
+        }
+        Codegen.generate("jal", methodLabel(call.getName()));
+        if (call.getDst() != null) {
+            String dest = def(call.getDst());
+            Codegen.generate("move", dest, Codegen.RESULT);
+            store(call.getDst(), dest);
+        }
+        for (int i = saved.size() - 1; i >= 0; i--) {
+            Codegen.genPop(saved.get(i));
+        }
+    }
+
+    // true if instruction i of instrs is a call whose result (if any) is
+    // returned right after it, and that passes all arguments in registers
+    private static boolean isTailCall(List<Instr> instrs, int i) {
+        if (!(instrs.get(i) instanceof CallInstr) || i + 1 >= instrs.size()
+                || !(instrs.get(i + 1) instanceof ReturnInstr)) {
+            return false;
+        }
+        Instr call = instrs.get(i);
+        Operand value = ((ReturnInstr) instrs.get(i + 1)).getValue();
+        return (value == null || value.equals(call.getDst()))
+                && call.getSrcs().length <= Codegen.ARGS.length;
+    }
+
+    // a call in tail position: the frame is given up before the callee is
+    // entered with a jump, so the callee returns straight to our caller
+    // (with its result in $v0)
+    private void genTailCall(CallInstr call) {
+        Operand[] args = call.getSrcs();
+        for (int i = 0; i < args.length; i++) {
+            String reg = use(args[i], Codegen.ARGS[i]);
+            if (!reg.equals(Codegen.ARGS[i])) Codegen.generate("move", Codegen.ARGS[i], reg);
+        }
+        genEpilogue();
+        Codegen.generate("j", methodLabel(call.getName()));
+    }
+
+    private void genPrint(PrintInstr print) {
+        String reg = use(print.getSrcs()[0], "$a0");
+        if (!reg.equals("$a0")) Codegen.generate("move", "$a0", reg);
+        int syscall = 1;
+        switch (print.getType()) {
+            case Types.StringType: syscall = 4;
+                break;
+            case Types.BoolType: syscall = 4;
+                Codegen.generate("jal", "_printBool");
+                break;
+        }
+        Codegen.generate("li", "$v0", syscall);
+        Codegen.generate("syscall");
+        Codegen.generate("la", "$a0", "_newLine");
+        Codegen.generate("li", "$v0", 4);
+        Codegen.generate("syscall");
+    }
+
+    private void genBranch(BranchInstr branch) {
+        Operand[] srcs = branch.getSrcs();
+        String left = use(srcs[0], "$t8");
+        String right = srcs[1] instanceof Const
+                ? "" + ((Const) srcs[1]).getValue() : use(srcs[1], "$t9");
+        BasicBlock ifTrue = branch.getIfTrue();
+        BasicBlock ifFalse = branch.getIfFalse();
+        if (ifTrue == myNext) {
+            Codegen.generate(branchOp(negate(branch.getOp())), left, right, ifFalse.getLabel());
+            return;
+        }
+        Codegen.generate(branchOp(branch.getOp()), left, right, ifTrue.getLabel());
+        if (ifFalse != myNext) Codegen.generate("j", ifFalse.getLabel());
+    }
+
+    private static boolean commutes(int op) {
+        return op == Op.ADD || op == Op.MUL || op == Op.AND || op == Op.OR
+                || op == Op.EQ || op == Op.NE || op == Op.MULHI;
+    }
+
+    private static boolean takesImmediate(int op, int value) {
+        if (Op.isCompare(op)) return Codegen.compareImmediate(branchOp(op), value);
+        return op == Op.ADD || op == Op.SUB || op == Op.MUL || op == Op.DIV
+                || op == Op.SHL || op == Op.SHR || op == Op.SHRU;
+    }
+
+    private static String arithOp(int op) {
+        switch (op) {
+            //wrap around like Op.eval, add and sub would trap on overflow
+            case Op.ADD: return "addu";
+            case Op.SUB: return "subu";
+            case Op.MUL: return "mul";
+            case Op.DIV: return "div";
+            case Op.AND: return "and";
+            case Op.OR: return "or";
+            case Op.SHL: return "sll";
+            case Op.SHR: return "sra";
+            case Op.SHRU: return "srl";
+            default: throw new RuntimeException();
+        }
+    }
+
+    private static String branchOp(int op) {
+        switch (op) {
+            case Op.EQ: return "beq";
+            case Op.NE: return "bne";
+            case Op.LT: return "blt";
+            case Op.GT: return "bgt";
+            case Op.LE: return "ble";
+            case Op.GE: return "bge";
+            default: throw new RuntimeException();
+        }
+    }
+
+    // compare operator that is true exactly when op is false
+    public static int negate(int op) {
+        switch (op) {
+            case Op.EQ: return Op.NE;
+            case Op.NE: return Op.EQ;
+            case Op.LT: return Op.GE;
+            case Op.GT: return Op.LE;
+            case Op.LE: return Op.GT;
+            case Op.GE: return Op.LT;
+            default: throw new RuntimeException();
+        }
+    }
+
+    private IrMethod myMethod;
+    // the method calls nothing and has neither $fp nor a saved $ra
+    private boolean myFrameless;
+    // return done by the fast path before the prologue, if any
+    private ReturnInstr myFastReturn;
+    // block placed after the current one
+    private BasicBlock myNext;
+    private int mySlotCount = 0;
+    private Liveness myLiveness;
+    private Map<Operand, int[]> myIntervals;
+    // where temps, locals and parameters live: a register or a frame slot
+    private Map<Operand, String> myRegs = new HashMap<>();
+    private Map<Operand, Integer> mySlots = new HashMap<>();
+    // callee saved registers in use, and their slots
+    private Map<String, Integer> mySaved = new LinkedHashMap<>();
+}
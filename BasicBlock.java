@@ -0,0 +1,42 @@
+import java.util.ArrayList;
+import java.util.List;
+
+// **********************************************************************
+// BasicBlock
+// **********************************************************************
+class BasicBlock {
+    public BasicBlock(String label) {
+        myLabel = label;
+    }
+
+    public String getLabel() {
+        return myLabel;
+    }
+
+    public List<Instr> getInstrs() {
+        return myInstrs;
+    }
+
+    // the terminator, or null while the block is still open
+    public Instr getLast() {
+        if (myInstrs.isEmpty()) return null;
+        Instr last = myInstrs.get(myInstrs.size() - 1);
+        return last.isTerminator() ? last : null;
+    }
+
+    // blocks control may continue with after this one
+    public List<BasicBlock> getSuccessors() {
+        List<BasicBlock> succ = new ArrayList<>();
+        Instr last = getLast();
+        if (last instanceof JumpInstr) {
+            succ.add(((JumpInstr) last).getTarget());
+        } else if (last instanceof BranchInstr) {
+            succ.add(((BranchInstr) last).getIfTrue());
+            succ.add(((BranchInstr) last).getIfFalse());
+        }
+        return succ;
+    }
+
+    private String myLabel;
+    private List<Instr> myInstrs = new ArrayList<>();
+}
@@ -0,0 +1,25 @@
+// **********************************************************************
+// BinInstr
+//    dst = src1 op src2
+// **********************************************************************
+class BinInstr extends Instr {
+    public BinInstr(int op, Operand d, Operand src1, Operand src2) {
+        myOp = op;
+        dst = d;
+        srcs = new Operand[]{src1, src2};
+    }
+
+    public Instr copy() {
+        return new BinInstr(myOp, dst, srcs[0], srcs[1]);
+    }
+
+    public int getOp() {
+        return myOp;
+    }
+
+    public String toString() {
+        return dst + " = " + srcs[0] + " " + Op.ToString(myOp) + " " + srcs[1];
+    }
+
+    private int myOp;
+}
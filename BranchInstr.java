@@ -0,0 +1,50 @@
+// **********************************************************************
+// BranchInstr
+//    if src1 op src2 goto block1 else goto block2
+// **********************************************************************
+class BranchInstr extends Instr {
+    public BranchInstr(int op, Operand src1, Operand src2,
+                       BasicBlock ifTrue, BasicBlock ifFalse) {
+        myOp = op;
+        srcs = new Operand[]{src1, src2};
+        myIfTrue = ifTrue;
+        myIfFalse = ifFalse;
+    }
+
+    public Instr copy() {
+        return new BranchInstr(myOp, srcs[0], srcs[1], myIfTrue, myIfFalse);
+    }
+
+    public int getOp() {
+        return myOp;
+    }
+
+    public BasicBlock getIfTrue() {
+        return myIfTrue;
+    }
+
+    public BasicBlock getIfFalse() {
+        return myIfFalse;
+    }
+
+    public void setIfTrue(BasicBlock block) {
+        myIfTrue = block;
+    }
+
+    public void setIfFalse(BasicBlock block) {
+        myIfFalse = block;
+    }
+
+    public boolean isTerminator() {
+        return true;
+    }
+
+    public String toString() {
+        return "if " + srcs[0] + " " + Op.ToString(myOp) + " " + srcs[1]
+                + " goto " + myIfTrue.getLabel() + " else " + myIfFalse.getLabel();
+    }
+
+    private int myOp;
+    private BasicBlock myIfTrue;
+    private BasicBlock myIfFalse;
+}
@@ -0,0 +1,38 @@
+// **********************************************************************
+// CallInstr
+//    [dst =] call name(src1, ..., srcN)
+// **********************************************************************
+class CallInstr extends Instr {
+    public CallInstr(Operand d, String name, boolean returnsValue, Operand[] args) {
+        dst = d;
+        myName = name;
+        myReturnsValue = returnsValue;
+        srcs = args;
+    }
+
+    public Instr copy() {
+        return new CallInstr(dst, myName, myReturnsValue, srcs.clone());
+    }
+
+    public String getName() {
+        return myName;
+    }
+
+    // true if the callee returns a value (even if dst is null)
+    public boolean returnsValue() {
+        return myReturnsValue;
+    }
+
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        if (dst != null) sb.append(dst + " = ");
+        sb.append("call " + myName + "(");
+        for (int i = 0; i < srcs.length; i++) {
+            sb.append((i > 0 ? ", " : "") + srcs[i]);
+        }
+        return sb.append(")").toString();
+    }
+
+    private String myName;
+    private boolean myReturnsValue;
+}
@@ -1,22 +1,21 @@
 import java.io.*;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 public class Codegen{
-    // file into which generated code is written
+    // sink the generated code is written to (see setOutput); the file
+    // is written by writeCode, after the peephole pass
     // public static PrintWriter p = null;
     public static PrintWriter p;
-    static int counter = 0;
-    static int compareCounter = 0;
-
-    static {
-        try {
-            p = IO.openOutputFile("Assembler.a");
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-    }
+    // literal pool, value -> label
+    private static Map<String, String> strings = new LinkedHashMap<>();
+    // static words of the data segment, label -> initial value
+    private static Map<String, Integer> words = new LinkedHashMap<>();
 
     // values of true and false
-    public static final String TRUE = "-1";
+    public static final String TRUE = "1";
     public static final String FALSE = "0";
 
     // registers
@@ -24,6 +23,17 @@ public class Codegen{
     public static final String SP = "$sp";
     //add other registers needed.
 
+    // registers for the first arguments of a call, and for its result
+    public static final String[] ARGS = {"$a0", "$a1", "$a2", "$a3"};
+    public static final String RESULT = "$v0";
+
+    // registers handed out by the register allocator of Backend; $t8
+    // and $t9 are kept free as scratch registers
+    public static final String[] TEMPS = {"$t0", "$t1", "$t2", "$t3", "$t4",
+                                          "$t5", "$t6", "$t7"};
+    public static final String[] SAVED = {"$s0", "$s1", "$s2", "$s3", "$s4",
+                                          "$s5", "$s6", "$s7"};
+
     // for pretty printing generated code
     private static final int MAXLEN = 4;
 
@@ -266,29 +276,62 @@ public class Codegen{
 
     // **********************************************************************
     // genCompare
-    //   given: a branch op code (whose two operands are in T0 and T1)
-    //   generate this code:
-    //       1. branch to truelab using the given op code
-    //       3. push false
-    //       4. goto falselab
-    //       5. truelab: push true
-    //       6. falselab:
-    public static void genCompare(String op){
-        p.print(op + " ");
-        p.print("$t0, $t1, ");
-        p.print("_truelab"+ compareCounter);
-        p.println();
-        generate("li", "$t0", 0);
-        genPush("$t0");
-        p.print("j " + "_falseLab" + compareCounter);
-        p.println();
-        genLabel("_truelab" + compareCounter);
-        generate("li", "$t0", -1);
-        genPush("$t0");
-        p.println();
-        genLabel("_falseLab" + compareCounter);
-        compareCounter++;
+    //   given: the branch op code of a comparison, a target register and
+    //          the two operands (the second may be an immediate, see
+    //          compareImmediate)
+    //   generate: target = TRUE if the comparison holds, FALSE otherwise,
+    //          without branching:
+    //       blt  slt   target, reg1, reg2
+    //       bge  slt   target, reg1, reg2;  xori target, target, 1
+    //       bgt  slt   target, reg2, reg1
+    //       ble  slt   target, reg2, reg1;  xori target, target, 1
+    //       beq  xor   target, reg1, reg2;  sltiu target, target, 1
+    //       bne  xor   target, reg1, reg2;  sltu target, $0, target
+    //   (the seq/sge/... pseudo instructions are assembled into branches)
+    public static void genCompare(String op, String dest, String reg1,
+                                  String reg2){
+        boolean immediate = !reg2.startsWith("$");
+        switch (op) {
+            case "blt":
+            case "bge":
+                generate(immediate ? "slti" : "slt", dest, reg1, reg2);
+                if (op.equals("bge")) generate("xori", dest, dest, 1);
+                break;
+            case "bgt":
+            case "ble":
+                generate("slt", dest, reg2, reg1);
+                if (op.equals("ble")) generate("xori", dest, dest, 1);
+                break;
+            default:
+                String diff = reg1;
+                if (!reg2.equals("0")) {
+                    generate(immediate ? "xori" : "xor", dest, reg1, reg2);
+                    diff = dest;
+                }
+                if (op.equals("beq")) {
+                    generate("sltiu", dest, diff, 1);
+                } else {
+                    generate("sltu", dest, "$0", diff);
+                }
+        }
+    }
 
+    // **********************************************************************
+    // compareImmediate
+    //   given:  the branch op code of a comparison and a constant
+    //   return: true if genCompare takes the constant as its second operand
+    //           (slti sign extends 16 bits, xori zero extends them)
+    public static boolean compareImmediate(String op, int value) {
+        switch (op) {
+            case "blt":
+            case "bge":
+                return value >= -32768 && value <= 32767;
+            case "beq":
+            case "bne":
+                return value >= 0 && value <= 65535;
+            default:
+                return false;
+        }
     }
 
     // **********************************************************************
@@ -309,13 +352,62 @@ public class Codegen{
     }
 
     // **********************************************************************
-    // Return a different label each time:
-    //        ._L0 ._L1 ._L2, etc.
+    // stringLabel
+    //    given:  the value of a string literal
+    //    return: its label in the literal pool; equal strings share one
+    //            label
+    // **********************************************************************
+    public static String stringLabel(String value) {
+        String label = strings.get(value);
+        if (label == null) {
+            label = "_str" + strings.size();
+            strings.put(value, label);
+        }
+        return label;
+    }
+
+    // put a string into the literal pool under the given label
+    public static void addString(String label, String value) {
+        strings.putIfAbsent(value, label);
+    }
+
+    // reserve a word with the given label and initial value in the data
+    // segment
+    public static void addWord(String label, int value) {
+        words.put(label, value);
+    }
+
+    // **********************************************************************
+    // genDataSegment
+    //    write the static words and every string of the literal pool into
+    //    one data segment
     // **********************************************************************
-    public static String nextLabel() {
-        String nextLabel = "_L" + counter;
-        counter ++;
-        return nextLabel;
+    public static void genDataSegment() {
+        dataSegment();
+        for (Map.Entry<String, Integer> entry : words.entrySet()) {
+            generateLabeled(entry.getKey(), ".word\t", "", "" + entry.getValue());
+        }
+        for (Map.Entry<String, String> entry : strings.entrySet()) {
+            generateLabeled(entry.getValue(), ".asciiz\t", "", quote(entry.getKey()));
+        }
+    }
+
+    // the string as an assembler literal, escapes written out again
+    private static String quote(String value) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '\n': sb.append("\\n"); break;
+                case '\t': sb.append("\\t"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\b': sb.append("\\b"); break;
+                case '\f': sb.append("\\f"); break;
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                default: sb.append(c);
+            }
+        }
+        return sb.append("\"").toString();
     }
 
     public static void dataSegment(){
@@ -333,8 +425,32 @@ public class Codegen{
         return p;
     }
 
-    public static void closePrinter()
+    // **********************************************************************
+    // setOutput
+    //    given:  the sink for the code of a new program
+    //    do:     write the code there from now on, with an empty literal
+    //            pool and data segment
+    // **********************************************************************
+    public static void setOutput(PrintWriter out)
+    {
+        p = out;
+        strings.clear();
+        words.clear();
+    }
+
+    // **********************************************************************
+    // writeCode
+    //    given:  the code of a program and the file to write it to
+    //    do:     run the peephole pass (and Scheduler) over the code and
+    //            write the result, then close the file
+    // **********************************************************************
+    public static void writeCode(String code, PrintWriter file)
     {
-        p.close();
+        List<String> lines = Peephole.optimize(Arrays.asList(code.split("\n")));
+        for (String line : Scheduler.schedule(lines))
+        {
+            file.println(line);
+        }
+        file.close();
     }
 }
\ No newline at end of file
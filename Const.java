@@ -0,0 +1,27 @@
+// **********************************************************************
+// Const
+//    int or boolean constant
+// **********************************************************************
+class Const extends Operand {
+    public Const(int value) {
+        myValue = value;
+    }
+
+    public int getValue() {
+        return myValue;
+    }
+
+    public boolean equals(Object o) {
+        return o instanceof Const && ((Const) o).myValue == myValue;
+    }
+
+    public int hashCode() {
+        return myValue;
+    }
+
+    public String toString() {
+        return "" + myValue;
+    }
+
+    private int myValue;
+}
@@ -0,0 +1,207 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// **********************************************************************
+// ConstantFolding
+//
+// Computes instructions whose operands are constants at compile time and
+// propagates the constant values of locals and temps through a method.
+// A value is known at the start of a block if every predecessor leaves
+// the same constant in it (forward data flow, iterated until stable).
+// Globals are not tracked, any call may change them. Branches on two
+// constants become jumps.
+// **********************************************************************
+class ConstantFolding extends Optimizer.MethodPass {
+
+    ConstantFolding() {
+        super("constant-folding");
+    }
+
+    boolean run(IrMethod method) {
+        Map<BasicBlock, Map<Operand, Const>> in = analyze(method);
+        boolean changed = false;
+        for (BasicBlock block : method.getBlocks()) {
+            if (!in.containsKey(block)) continue; //not reachable
+            Map<Operand, Const> known = new HashMap<>(in.get(block));
+            List<Instr> instrs = block.getInstrs();
+            for (int i = 0; i < instrs.size(); i++) {
+                Instr instr = instrs.get(i);
+                Operand[] srcs = instr.getSrcs();
+                for (int k = 0; k < srcs.length; k++) {
+                    Const value = known.get(srcs[k]);
+                    if (value != null) {
+                        instr.setSrc(k, value);
+                        changed = true;
+                    }
+                }
+                Instr folded = fold(instr);
+                if (folded != instr) {
+                    instrs.set(i, folded);
+                    instr = folded;
+                    hits++;
+                    changed = true;
+                }
+                transfer(instr, known);
+            }
+        }
+        return removeUnused(method) || changed;
+    }
+
+    // drop the constants moved into temps that nothing reads any more,
+    // their uses have all been replaced
+    private boolean removeUnused(IrMethod method) {
+        Set<Operand> used = new HashSet<>();
+        for (BasicBlock block : method.getBlocks()) {
+            for (Instr instr : block.getInstrs()) {
+                used.addAll(Arrays.asList(instr.getSrcs()));
+            }
+        }
+        boolean changed = false;
+        for (BasicBlock block : method.getBlocks()) {
+            changed |= block.getInstrs().removeIf(instr -> instr instanceof MoveInstr
+                    && instr.getDst() instanceof Temp && !used.contains(instr.getDst())
+                    && instr.getSrcs()[0] instanceof Const);
+        }
+        return changed;
+    }
+
+    // constants known at the start of every reachable block
+    private Map<BasicBlock, Map<Operand, Const>> analyze(IrMethod method) {
+        List<BasicBlock> blocks = method.getBlocks();
+        Map<BasicBlock, List<BasicBlock>> preds = method.getPredecessors();
+        Map<BasicBlock, Map<Operand, Const>> in = new HashMap<>();
+        Map<BasicBlock, Map<Operand, Const>> out = new HashMap<>();
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (BasicBlock block : blocks) {
+                Map<Operand, Const> state = null;
+                if (block == blocks.get(0)) {
+                    state = new HashMap<>();
+                }
+                for (BasicBlock pred : preds.get(block)) {
+                    Map<Operand, Const> predOut = out.get(pred);
+                    if (predOut == null) continue;
+                    if (state == null) {
+                        state = new HashMap<>(predOut);
+                    } else {
+                        state.entrySet().removeIf(e -> !e.getValue().equals(predOut.get(e.getKey())));
+                    }
+                }
+                if (state == null) continue;
+                in.put(block, state);
+                Map<Operand, Const> blockOut = new HashMap<>(state);
+                for (Instr instr : block.getInstrs()) {
+                    transfer(instr, blockOut);
+                }
+                if (!blockOut.equals(out.get(block))) {
+                    out.put(block, blockOut);
+                    changed = true;
+                }
+            }
+        }
+        return in;
+    }
+
+    // update the known constants for the effect of instr
+    private static void transfer(Instr instr, Map<Operand, Const> known) {
+        Operand dst = instr.getDst();
+        if (dst == null || !dst.isLocal()) return;
+        Const value = value(instr, known);
+        if (value != null) {
+            known.put(dst, value);
+        } else {
+            known.remove(dst);
+        }
+    }
+
+    // the constant an operand holds, or null
+    private static Const constant(Operand o, Map<Operand, Const> known) {
+        return o instanceof Const ? (Const) o : known.get(o);
+    }
+
+    // the constant instr assigns to its dst, or null
+    private static Const value(Instr instr, Map<Operand, Const> known) {
+        Operand[] srcs = instr.getSrcs();
+        if (instr instanceof MoveInstr) {
+            return constant(srcs[0], known);
+        }
+        if (instr instanceof UnInstr) {
+            Const a = constant(srcs[0], known);
+            return a == null ? null : new Const(Op.eval(((UnInstr) instr).getOp(), a.getValue()));
+        }
+        if (instr instanceof BinInstr) {
+            Const a = constant(srcs[0], known);
+            Const b = constant(srcs[1], known);
+            if (a == null || b == null) return null;
+            Integer result = Op.eval(((BinInstr) instr).getOp(), a.getValue(), b.getValue());
+            return result == null ? null : new Const(result);
+        }
+        return null;
+    }
+
+    // instr computed at compile time as far as possible, or instr itself
+    private static Instr fold(Instr instr) {
+        Operand[] srcs = instr.getSrcs();
+        if (instr instanceof BranchInstr) {
+            BranchInstr branch = (BranchInstr) instr;
+            if (!(srcs[0] instanceof Const) || !(srcs[1] instanceof Const)) return instr;
+            boolean taken = Op.test(branch.getOp(), ((Const) srcs[0]).getValue(),
+                    ((Const) srcs[1]).getValue());
+            return new JumpInstr(taken ? branch.getIfTrue() : branch.getIfFalse());
+        }
+        if (instr instanceof MoveInstr || instr.getDst() == null) return instr;
+        Const value = value(instr, new HashMap<>());
+        if (value != null) {
+            return new MoveInstr(instr.getDst(), value);
+        }
+        if (instr instanceof BinInstr) {
+            Operand same = identity(((BinInstr) instr).getOp(), srcs[0], srcs[1]);
+            if (same != null) return new MoveInstr(instr.getDst(), same);
+        }
+        return instr;
+    }
+
+    // the operand a op b is equal to if one side is a neutral or
+    // absorbing constant (x + 0, x * 1, x * 0, ...), or null
+    private static Operand identity(int op, Operand a, Operand b) {
+        Integer left = a instanceof Const ? ((Const) a).getValue() : null;
+        Integer right = b instanceof Const ? ((Const) b).getValue() : null;
+        switch (op) {
+            case Op.ADD:
+                if (right != null && right == 0) return a;
+                if (left != null && left == 0) return b;
+                break;
+            case Op.SUB:
+                if (right != null && right == 0) return a;
+                break;
+            case Op.MUL:
+                if (right != null && right == 1) return a;
+                if (left != null && left == 1) return b;
+                if ((right != null && right == 0) || (left != null && left == 0)) return new Const(0);
+                break;
+            case Op.DIV:
+                if (right != null && right == 1) return a;
+                break;
+            case Op.POW:
+                if (right != null && right == 0) return new Const(1);
+                if (right != null && right == 1) return a;
+                break;
+            case Op.AND:
+                if (right != null && right == 1) return a;
+                if (left != null && left == 1) return b;
+                if ((right != null && right == 0) || (left != null && left == 0)) return new Const(0);
+                break;
+            case Op.OR:
+                if (right != null && right == 0) return a;
+                if (left != null && left == 0) return b;
+                if ((right != null && right == 1) || (left != null && left == 1)) return new Const(1);
+                break;
+        }
+        return null;
+    }
+}
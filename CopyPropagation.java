@@ -0,0 +1,138 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// **********************************************************************
+// CopyPropagation
+//
+// After a copy a = b (both temps or locals), reads of a are replaced by
+// reads of b as long as neither is assigned again; the copies that are
+// known on every path into a block are found by forward data flow over
+// the blocks. The copy itself is left to DeadCodeElimination.
+//
+// The other direction is done inside a block: a temp that is computed
+// only to be copied into a variable is computed into the variable
+// directly,
+//     t = a + b; ...; x = t   =>   x = a + b; ...
+// if t is not used anywhere else and x is neither read nor assigned in
+// between (nor, for a global, anything called in between).
+// **********************************************************************
+class CopyPropagation extends Optimizer.MethodPass {
+
+    CopyPropagation() {
+        super("copy-propagation");
+    }
+
+    boolean run(IrMethod method) {
+        boolean changed = false;
+        Map<BasicBlock, Map<Operand, Operand>> in = analyze(method);
+        for (BasicBlock block : method.getBlocks()) {
+            Map<Operand, Operand> copies = in.get(block);
+            if (copies == null) continue;
+            copies = new HashMap<>(copies);
+            for (Instr instr : block.getInstrs()) {
+                Operand[] srcs = instr.getSrcs();
+                for (int i = 0; i < srcs.length; i++) {
+                    Operand source = copies.get(srcs[i]);
+                    if (source != null) {
+                        instr.setSrc(i, source);
+                        hits++;
+                        changed = true;
+                    }
+                }
+                transfer(instr, copies);
+            }
+        }
+        return coalesce(method) || changed;
+    }
+
+    // copies known at the start of every reachable block
+    private static Map<BasicBlock, Map<Operand, Operand>> analyze(IrMethod method) {
+        List<BasicBlock> blocks = method.getBlocks();
+        Map<BasicBlock, List<BasicBlock>> preds = method.getPredecessors();
+        Map<BasicBlock, Map<Operand, Operand>> in = new HashMap<>();
+        Map<BasicBlock, Map<Operand, Operand>> out = new HashMap<>();
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (BasicBlock block : blocks) {
+                Map<Operand, Operand> state = null;
+                if (block == blocks.get(0)) {
+                    state = new HashMap<>();
+                }
+                for (BasicBlock pred : preds.get(block)) {
+                    Map<Operand, Operand> predOut = out.get(pred);
+                    if (predOut == null) continue;
+                    if (state == null) {
+                        state = new HashMap<>(predOut);
+                    } else {
+                        state.entrySet().removeIf(e -> !e.getValue().equals(predOut.get(e.getKey())));
+                    }
+                }
+                if (state == null) continue;
+                in.put(block, state);
+                Map<Operand, Operand> blockOut = new HashMap<>(state);
+                for (Instr instr : block.getInstrs()) {
+                    transfer(instr, blockOut);
+                }
+                if (!blockOut.equals(out.get(block))) {
+                    out.put(block, blockOut);
+                    changed = true;
+                }
+            }
+        }
+        return in;
+    }
+
+    // update the known copies for the effect of instr
+    private static void transfer(Instr instr, Map<Operand, Operand> copies) {
+        Operand dst = instr.getDst();
+        if (dst == null) return;
+        copies.remove(dst);
+        copies.values().removeIf(source -> source.equals(dst));
+        Operand src = instr instanceof MoveInstr ? instr.getSrcs()[0] : null;
+        if (dst.isLocal() && src != null && src.isLocal() && !src.equals(dst)) {
+            copies.put(dst, src);
+        }
+    }
+
+    // compute temps used only for a copy into the target of the copy
+    private boolean coalesce(IrMethod method) {
+        Map<Operand, Integer> uses = new HashMap<>();
+        Map<Operand, Integer> defs = new HashMap<>();
+        for (BasicBlock block : method.getBlocks()) {
+            for (Instr instr : block.getInstrs()) {
+                for (Operand src : instr.getSrcs()) uses.merge(src, 1, Integer::sum);
+                if (instr.getDst() != null) defs.merge(instr.getDst(), 1, Integer::sum);
+            }
+        }
+        boolean changed = false;
+        for (BasicBlock block : method.getBlocks()) {
+            List<Instr> instrs = block.getInstrs();
+            for (int m = 0; m < instrs.size(); m++) {
+                Instr move = instrs.get(m);
+                if (!(move instanceof MoveInstr) || !(move.getSrcs()[0] instanceof Temp)) continue;
+                Operand t = move.getSrcs()[0];
+                Operand x = move.getDst();
+                if (uses.get(t) != 1 || defs.get(t) == null || defs.get(t) != 1 || t.equals(x)) continue;
+                boolean global = !x.isLocal();
+                for (int k = m - 1; k >= 0; k--) {
+                    Instr def = instrs.get(k);
+                    if (t.equals(def.getDst())) {
+                        def.setDst(x);
+                        instrs.remove(m--);
+                        hits++;
+                        changed = true;
+                        break;
+                    }
+                    if (x.equals(def.getDst()) || (global && def instanceof CallInstr)
+                            || Arrays.asList(def.getSrcs()).contains(x)) {
+                        break;
+                    }
+                }
+            }
+        }
+        return changed;
+    }
+}
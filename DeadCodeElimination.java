@@ -0,0 +1,70 @@
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// **********************************************************************
+// DeadCodeElimination
+//
+// Works on the control flow graph of a method (the blocks and their
+// successors, as built when the statements were lowered):
+//     - blocks that cannot be reached from the first block are removed
+//       (code after a return, the other side of a constant branch)
+//     - instructions that only define a temp or local nobody reads
+//       afterwards are removed (see Liveness); walking backwards, the
+//       computation feeding such an assignment dies with it. Calls stay,
+//       only their unused result is dropped.
+// **********************************************************************
+class DeadCodeElimination extends Optimizer.MethodPass {
+
+    DeadCodeElimination() {
+        super("dead-code");
+    }
+
+    boolean run(IrMethod method) {
+        boolean changed = removeUnreachable(method);
+        Liveness liveness = new Liveness(method);
+        for (BasicBlock block : method.getBlocks()) {
+            Set<Operand> live = new HashSet<>(liveness.getLiveOut(block));
+            List<Instr> instrs = block.getInstrs();
+            for (int i = instrs.size() - 1; i >= 0; i--) {
+                Instr instr = instrs.get(i);
+                Operand dst = instr.getDst();
+                boolean dead = dst != null && dst.isLocal() && !live.contains(dst);
+                if (instr instanceof MoveInstr && instr.getSrcs()[0].equals(dst)) {
+                    dead = true;
+                }
+                if (dead && instr instanceof CallInstr) {
+                    instr.setDst(null);
+                    hits++;
+                    changed = true;
+                } else if (dead) {
+                    instrs.remove(i);
+                    hits++;
+                    changed = true;
+                    continue;
+                }
+                Liveness.transfer(instr, live);
+            }
+        }
+        return changed;
+    }
+
+    // drop the blocks that no path from the first block leads to
+    private boolean removeUnreachable(IrMethod method) {
+        List<BasicBlock> blocks = method.getBlocks();
+        Set<BasicBlock> reached = new HashSet<>();
+        List<BasicBlock> work = new ArrayList<>();
+        work.add(blocks.get(0));
+        reached.add(blocks.get(0));
+        while (!work.isEmpty()) {
+            for (BasicBlock succ : work.remove(work.size() - 1).getSuccessors()) {
+                if (reached.add(succ)) work.add(succ);
+            }
+        }
+        int count = blocks.size();
+        blocks.removeIf(block -> !reached.contains(block));
+        hits += count - blocks.size();
+        return count != blocks.size();
+    }
+}
@@ -0,0 +1,79 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// **********************************************************************
+// DeadDeclElimination
+//
+// Drops the declarations the running program cannot need:
+//     - methods that are not reachable from main in the call graph (the
+//       callees of a method are the names of its CallInstrs)
+//     - globals that no remaining method reads; the stores into them
+//       are removed with them (a call only loses its result)
+// Nothing is done for a program without main.
+// **********************************************************************
+class DeadDeclElimination extends Optimizer.Pass {
+
+    DeadDeclElimination() {
+        super("dead-decls");
+    }
+
+    boolean run(IrProgram program) {
+        Map<String, IrMethod> methods = new HashMap<>();
+        for (IrMethod method : program.getMethods()) {
+            methods.put(method.getName(), method);
+        }
+        if (!methods.containsKey("main")) return false;
+
+        Set<IrMethod> reached = new HashSet<>();
+        List<IrMethod> work = new ArrayList<>();
+        reached.add(methods.get("main"));
+        work.add(methods.get("main"));
+        while (!work.isEmpty()) {
+            for (BasicBlock block : work.remove(work.size() - 1).getBlocks()) {
+                for (Instr instr : block.getInstrs()) {
+                    if (!(instr instanceof CallInstr)) continue;
+                    IrMethod callee = methods.get(((CallInstr) instr).getName());
+                    if (reached.add(callee)) work.add(callee);
+                }
+            }
+        }
+        int count = program.getMethods().size();
+        program.getMethods().removeIf(method -> !reached.contains(method));
+        hits += count - program.getMethods().size();
+        boolean changed = count != program.getMethods().size();
+
+        Set<Operand> read = new HashSet<>();
+        for (IrMethod method : program.getMethods()) {
+            for (BasicBlock block : method.getBlocks()) {
+                for (Instr instr : block.getInstrs()) {
+                    for (Operand src : instr.getSrcs()) read.add(src);
+                }
+            }
+        }
+        for (IrMethod method : program.getMethods()) {
+            for (BasicBlock block : method.getBlocks()) {
+                List<Instr> instrs = block.getInstrs();
+                for (int i = instrs.size() - 1; i >= 0; i--) {
+                    Operand dst = instrs.get(i).getDst();
+                    if (!(dst instanceof Var) || !((Var) dst).isGlobal() || read.contains(dst)) {
+                        continue;
+                    }
+                    if (instrs.get(i) instanceof CallInstr) {
+                        instrs.get(i).setDst(null);
+                    } else {
+                        instrs.remove(i);
+                    }
+                    changed = true;
+                }
+            }
+        }
+        count = program.getGlobals().size();
+        program.getGlobals().removeIf(sym -> !read.contains(new Var(sym)));
+        hits += count - program.getGlobals().size();
+        return changed || count != program.getGlobals().size();
+    }
+}
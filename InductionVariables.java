@@ -0,0 +1,102 @@
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// **********************************************************************
+// InductionVariables
+//
+// A basic induction variable of a loop (see Loops) is a temp or local
+// whose only assignment in the loop is i = i + c or i = i - c (c a
+// constant). A multiplication j = i * k (k a constant) in the loop is
+// replaced by a new temp t that always holds i * k: t is computed once
+// in the preheader and stepped by c * k right after i is:
+//     do { ... j = i * 12; ... i = i + 1; } while (i < n)
+//  => t = i * 12; do { ... j = t; ... i = i + 1; t = t + 12; } while (i < n)
+// (the stepping add wraps around on overflow like the multiplication,
+// see Op.eval, so t stays equal to i * k even past 2^31).
+// **********************************************************************
+class InductionVariables extends Optimizer.MethodPass {
+
+    InductionVariables() {
+        super("induction-variables");
+    }
+
+    boolean run(IrMethod method) {
+        boolean changed = false;
+        boolean again = true;
+        while (again) {
+            again = false;
+            Loops loops = new Loops(method);
+            for (Loops.Loop loop : loops.getLoops()) {
+                if (reduce(method, loops, loop)) {
+                    again = true;
+                    changed = true;
+                    break;
+                }
+            }
+        }
+        return changed;
+    }
+
+    // replace the first multiplication of a basic induction variable of
+    // loop by a constant; returns true if there was one
+    private boolean reduce(IrMethod method, Loops loops, Loops.Loop loop) {
+        //the assignments in the loop, and the only one of each operand
+        Map<Operand, Integer> defs = new HashMap<>();
+        Map<Operand, Instr> def = new HashMap<>();
+        for (BasicBlock block : loop.getBlocks()) {
+            for (Instr instr : block.getInstrs()) {
+                if (instr.getDst() == null) continue;
+                defs.merge(instr.getDst(), 1, Integer::sum);
+                def.put(instr.getDst(), instr);
+            }
+        }
+        for (BasicBlock block : loop.getBlocks()) {
+            List<Instr> instrs = block.getInstrs();
+            for (int i = 0; i < instrs.size(); i++) {
+                Instr instr = instrs.get(i);
+                if (!(instr instanceof BinInstr) || ((BinInstr) instr).getOp() != Op.MUL) continue;
+                Operand[] srcs = instr.getSrcs();
+                int k = srcs[1] instanceof Const ? 1 : 0;
+                if (!(srcs[k] instanceof Const)) continue;
+                Operand iv = srcs[1 - k];
+                int factor = ((Const) srcs[k]).getValue();
+                Integer step = iv.isLocal() && defs.get(iv) != null && defs.get(iv) == 1
+                        ? step(def.get(iv)) : null;
+                if (step == null) continue;
+
+                Temp t = method.newTemp(Types.IntType);
+                instrs.set(i, new MoveInstr(instr.getDst(), t));
+                for (BasicBlock b : loop.getBlocks()) {
+                    int at = b.getInstrs().indexOf(def.get(iv));
+                    if (at >= 0) {
+                        b.getInstrs().add(at + 1, new BinInstr(Op.ADD, t, t, new Const(step * factor)));
+                    }
+                }
+                List<Instr> pre = loops.getPreheader(loop).getInstrs();
+                pre.add(pre.size() - 1, new BinInstr(Op.MUL, t, iv, new Const(factor)));
+                hits++;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // c if instr is i = i + c or i = i - c, null otherwise
+    static Integer step(Instr instr) {
+        if (!(instr instanceof BinInstr)) return null;
+        int op = ((BinInstr) instr).getOp();
+        Operand[] srcs = instr.getSrcs();
+        Operand i = instr.getDst();
+        if (op == Op.ADD && srcs[0].equals(i) && srcs[1] instanceof Const) {
+            return ((Const) srcs[1]).getValue();
+        }
+        if (op == Op.ADD && srcs[1].equals(i) && srcs[0] instanceof Const) {
+            return ((Const) srcs[0]).getValue();
+        }
+        if (op == Op.SUB && srcs[0].equals(i) && srcs[1] instanceof Const) {
+            return -((Const) srcs[1]).getValue();
+        }
+        return null;
+    }
+}
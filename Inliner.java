@@ -0,0 +1,185 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// **********************************************************************
+// Inliner
+//
+// Replaces calls of small methods by a copy of their body, so that the
+// call overhead (argument moves, jal, prologue and epilogue) disappears
+// and the other passes see the code of the callee with the actual
+// arguments (a call with constant arguments usually folds away).
+//
+// The parameters, locals and temps of the callee become new temps of the
+// caller; every return becomes an assignment of the result and a jump to
+// the code after the call. A method is inlined if it has at most
+// MAX_INLINE_SIZE instructions, or at most 4 * MAX_INLINE_SIZE if it is
+// called only once. Methods that call themselves are never inlined, and
+// a caller does not grow beyond MAX_METHOD_SIZE instructions.
+// **********************************************************************
+class Inliner extends Optimizer.Pass {
+
+    // largest method that is inlined at every call
+    static int MAX_INLINE_SIZE = 12;
+    // size up to which a method is grown by inlining
+    static int MAX_METHOD_SIZE = 400;
+
+    Inliner() {
+        super("inliner");
+    }
+
+    boolean run(IrProgram program) {
+        Map<String, IrMethod> methods = new HashMap<>();
+        Map<String, Integer> calls = new HashMap<>();
+        for (IrMethod method : program.getMethods()) {
+            methods.put(method.getName(), method);
+            for (BasicBlock block : method.getBlocks()) {
+                for (Instr instr : block.getInstrs()) {
+                    if (instr instanceof CallInstr) {
+                        calls.merge(((CallInstr) instr).getName(), 1, Integer::sum);
+                    }
+                }
+            }
+        }
+
+        boolean changed = false;
+        for (IrMethod method : program.getMethods()) {
+            List<BasicBlock> blocks = method.getBlocks();
+            for (int b = 0; b < blocks.size(); b++) {
+                List<Instr> instrs = blocks.get(b).getInstrs();
+                for (int i = 0; i < instrs.size(); i++) {
+                    if (!(instrs.get(i) instanceof CallInstr)) continue;
+                    CallInstr call = (CallInstr) instrs.get(i);
+                    IrMethod callee = methods.get(call.getName());
+                    int size = size(callee);
+                    int limit = calls.get(callee.getName()) == 1
+                            ? 4 * MAX_INLINE_SIZE : MAX_INLINE_SIZE;
+                    if (callee == method || size > limit || isRecursive(callee)
+                            || size(method) + size > MAX_METHOD_SIZE) {
+                        continue;
+                    }
+                    inline(method, b, i, callee);
+                    hits++;
+                    changed = true;
+                    //the rest of the block was moved after the body
+                    break;
+                }
+            }
+        }
+        return changed;
+    }
+
+    // number of instructions of a method
+    private static int size(IrMethod method) {
+        int size = 0;
+        for (BasicBlock block : method.getBlocks()) {
+            size += block.getInstrs().size();
+        }
+        return size;
+    }
+
+    // true if the method contains a call of itself
+    private static boolean isRecursive(IrMethod method) {
+        for (BasicBlock block : method.getBlocks()) {
+            for (Instr instr : block.getInstrs()) {
+                if (instr instanceof CallInstr
+                        && ((CallInstr) instr).getName().equals(method.getName())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // **********************************************************************
+    // inline
+    //    replace the call at instruction i of block b of method by the
+    //    body of callee:
+    //        block b:   ... d = call callee(args) rest
+    //    =>  block b:   ... params = args, goto <copy of the entry>
+    //                   <copies of the blocks of callee>
+    //        new block: rest
+    // **********************************************************************
+    private void inline(IrMethod method, int b, int i, IrMethod callee) {
+        List<BasicBlock> blocks = method.getBlocks();
+        BasicBlock block = blocks.get(b);
+        List<Instr> instrs = block.getInstrs();
+        CallInstr call = (CallInstr) instrs.get(i);
+        BasicBlock after = method.newBlock();
+        after.getInstrs().addAll(instrs.subList(i + 1, instrs.size()));
+        instrs.subList(i, instrs.size()).clear();
+
+        Map<Operand, Operand> operands = new HashMap<>();
+        Map<BasicBlock, BasicBlock> copies = new HashMap<>();
+        for (BasicBlock calleeBlock : callee.getBlocks()) {
+            copies.put(calleeBlock, method.newBlock());
+        }
+        Operand[] args = call.getSrcs();
+        List<SymbolTable.Sym> params = callee.getParams();
+        for (int j = 0; j < args.length; j++) {
+            instrs.add(new MoveInstr(rename(method, new Var(params.get(j)), operands), args[j]));
+        }
+        instrs.add(new JumpInstr(copies.get(callee.getBlocks().get(0))));
+
+        List<BasicBlock> body = new ArrayList<>();
+        for (BasicBlock calleeBlock : callee.getBlocks()) {
+            BasicBlock copy = copies.get(calleeBlock);
+            for (Instr instr : calleeBlock.getInstrs()) {
+                copy.getInstrs().addAll(copy(method, instr, call.getDst(), after, operands, copies));
+            }
+            body.add(copy);
+        }
+        body.add(after);
+        blocks.addAll(b + 1, body);
+    }
+
+    // the operand of the caller standing for operand o of the callee
+    private static Operand rename(IrMethod method, Operand o, Map<Operand, Operand> operands) {
+        if (o == null || !o.isLocal()) return o;
+        Operand renamed = operands.get(o);
+        if (renamed == null) {
+            int type = o instanceof Temp ? ((Temp) o).getType() : ((Var) o).getSym().getMyType();
+            renamed = method.newTemp(type);
+            operands.put(o, renamed);
+        }
+        return renamed;
+    }
+
+    // the instructions of the caller standing for instr of the callee;
+    // a return assigns result and continues with after
+    private static List<Instr> copy(IrMethod method, Instr instr, Operand result, BasicBlock after,
+                                    Map<Operand, Operand> operands,
+                                    Map<BasicBlock, BasicBlock> copies) {
+        List<Instr> code = new ArrayList<>();
+        Operand dst = rename(method, instr.getDst(), operands);
+        Operand[] srcs = new Operand[instr.getSrcs().length];
+        for (int j = 0; j < srcs.length; j++) {
+            srcs[j] = rename(method, instr.getSrcs()[j], operands);
+        }
+        if (instr instanceof MoveInstr) {
+            code.add(new MoveInstr(dst, srcs[0]));
+        } else if (instr instanceof BinInstr) {
+            code.add(new BinInstr(((BinInstr) instr).getOp(), dst, srcs[0], srcs[1]));
+        } else if (instr instanceof UnInstr) {
+            code.add(new UnInstr(((UnInstr) instr).getOp(), dst, srcs[0]));
+        } else if (instr instanceof CallInstr) {
+            CallInstr call = (CallInstr) instr;
+            code.add(new CallInstr(dst, call.getName(), call.returnsValue(), srcs));
+        } else if (instr instanceof PrintInstr) {
+            code.add(new PrintInstr(((PrintInstr) instr).getType(), srcs[0]));
+        } else if (instr instanceof JumpInstr) {
+            code.add(new JumpInstr(copies.get(((JumpInstr) instr).getTarget())));
+        } else if (instr instanceof BranchInstr) {
+            BranchInstr branch = (BranchInstr) instr;
+            code.add(new BranchInstr(branch.getOp(), srcs[0], srcs[1],
+                    copies.get(branch.getIfTrue()), copies.get(branch.getIfFalse())));
+        } else if (instr instanceof ReturnInstr) {
+            if (result != null && srcs.length > 0) {
+                code.add(new MoveInstr(result, srcs[0]));
+            }
+            code.add(new JumpInstr(after));
+        }
+        return code;
+    }
+}
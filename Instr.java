@@ -0,0 +1,35 @@
+// **********************************************************************
+// Instr
+//    instruction of a BasicBlock; fields dst (defined operand, may be
+//    null) and srcs (used operands)
+// **********************************************************************
+abstract class Instr {
+    public Operand getDst() {
+        return dst;
+    }
+
+    public void setDst(Operand operand) {
+        dst = operand;
+    }
+
+    public Operand[] getSrcs() {
+        return srcs;
+    }
+
+    public void setSrc(int i, Operand operand) {
+        srcs[i] = operand;
+    }
+
+    public boolean isTerminator() {
+        return false;
+    }
+
+    // a new instruction doing the same (the operands are shared, the
+    // array of them is not)
+    public abstract Instr copy();
+
+    // operand defined by this instruction
+    protected Operand dst;
+    // operands used by this instruction
+    protected Operand[] srcs;
+}
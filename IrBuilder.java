@@ -0,0 +1,73 @@
+import java.util.List;
+
+// **********************************************************************
+// IrBuilder
+//    used by the lower methods of the AST to append instructions to the
+//    current block of a method
+// **********************************************************************
+class IrBuilder {
+    public IrBuilder(IrMethod method) {
+        myMethod = method;
+        placeBlock(newBlock());
+    }
+
+    public IrMethod getMethod() {
+        return myMethod;
+    }
+
+    public Temp newTemp(int type) {
+        return myMethod.newTemp(type);
+    }
+
+    public BasicBlock newBlock() {
+        return myMethod.newBlock();
+    }
+
+    // continue with the given block; an open current block falls
+    // through to it
+    public void placeBlock(BasicBlock block) {
+        if (myCurrent != null && myCurrent.getLast() == null) {
+            myCurrent.getInstrs().add(new JumpInstr(block));
+        }
+        myMethod.getBlocks().add(block);
+        myCurrent = block;
+    }
+
+    public void emit(Instr instr) {
+        if (myCurrent.getLast() != null) {
+            //code after a terminator, nothing jumps here
+            placeBlock(newBlock());
+        }
+        myCurrent.getInstrs().add(instr);
+    }
+
+    public boolean isTerminated() {
+        return myCurrent.getLast() != null;
+    }
+
+    // dst = value, reusing the instruction that just computed value
+    // if it is a temp
+    public void assign(Operand dst, Operand value) {
+        List<Instr> instrs = myCurrent.getInstrs();
+        if (value instanceof Temp && !instrs.isEmpty()
+                && instrs.get(instrs.size() - 1).getDst() == value) {
+            instrs.get(instrs.size() - 1).setDst(dst);
+        } else {
+            emit(new MoveInstr(dst, value));
+        }
+    }
+
+    // copy the value of a global into a temp, so that a later call
+    // cannot change it
+    public Operand freeze(Operand value) {
+        if (value instanceof Var && ((Var) value).isGlobal()) {
+            Temp temp = newTemp(((Var) value).getSym().getMyType());
+            emit(new MoveInstr(temp, value));
+            return temp;
+        }
+        return value;
+    }
+
+    private IrMethod myMethod;
+    private BasicBlock myCurrent;
+}
@@ -0,0 +1,69 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// **********************************************************************
+// IrMethod
+// **********************************************************************
+class IrMethod {
+    public IrMethod(IrProgram program, String name, boolean returnsValue) {
+        myProgram = program;
+        myName = name;
+        myReturnsValue = returnsValue;
+    }
+
+    public String getName() {
+        return myName;
+    }
+
+    public boolean returnsValue() {
+        return myReturnsValue;
+    }
+
+    public void addParam(SymbolTable.Sym sym) {
+        myParams.add(sym);
+    }
+
+    public List<SymbolTable.Sym> getParams() {
+        return myParams;
+    }
+
+    public List<BasicBlock> getBlocks() {
+        return myBlocks;
+    }
+
+    // blocks that may continue with each block
+    public Map<BasicBlock, List<BasicBlock>> getPredecessors() {
+        Map<BasicBlock, List<BasicBlock>> preds = new HashMap<>();
+        for (BasicBlock block : myBlocks) {
+            preds.put(block, new ArrayList<>());
+        }
+        for (BasicBlock block : myBlocks) {
+            for (BasicBlock succ : block.getSuccessors()) {
+                preds.get(succ).add(block);
+            }
+        }
+        return preds;
+    }
+
+    public Temp newTemp(int type) {
+        return new Temp(myTempCount++, type);
+    }
+
+    // a new block, labeled uniquely within the program
+    public BasicBlock newBlock() {
+        return new BasicBlock(myProgram.newLabel());
+    }
+
+    public IrProgram getProgram() {
+        return myProgram;
+    }
+
+    private IrProgram myProgram;
+    private String myName;
+    private boolean myReturnsValue;
+    private List<SymbolTable.Sym> myParams = new ArrayList<>();
+    private List<BasicBlock> myBlocks = new ArrayList<>();
+    private int myTempCount = 0;
+}
@@ -0,0 +1,80 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// **********************************************************************
+// IrProgram and the classes below, each in a file of its own, define the
+// three-address intermediate representation (IR) of a "Simple" program.
+// The AST is lowered into it (see the lower methods in ast.java) and
+// Backend translates it into MIPS code.
+//
+//     Class               Contents
+//     -----               --------
+//     IrProgram           globals, IrMethods
+//     IrMethod            params, locals, sequence of BasicBlocks
+//     BasicBlock          label, instructions; the last one is a
+//                         terminator (JumpInstr, BranchInstr, ReturnInstr)
+//
+//     Operand:
+//       Temp              value computed by the compiler (typed)
+//       Var               local variable, parameter or global
+//       Const             int or boolean constant
+//       StrConst          string literal
+//
+//     Instr:              fields dst (defined operand, may be null)
+//                         and srcs (used operands)
+//       MoveInstr         dst = src
+//       BinInstr          dst = src1 op src2
+//       UnInstr           dst = op src
+//       CallInstr         [dst =] call name(src1, ..., srcN)
+//       PrintInstr        print src
+//       JumpInstr         goto block
+//       BranchInstr       if src1 op src2 goto block1 else goto block2
+//       ReturnInstr       return [src]
+// **********************************************************************
+class IrProgram {
+    public IrProgram(String name) {
+        myName = name;
+    }
+
+    public String getName() {
+        return myName;
+    }
+
+    public void addGlobal(SymbolTable.Sym sym) {
+        myGlobals.add(sym);
+    }
+
+    public List<SymbolTable.Sym> getGlobals() {
+        return myGlobals;
+    }
+
+    // value of a global when the program starts
+    public int getInitialValue(SymbolTable.Sym sym) {
+        return myInitialValues.getOrDefault(sym, 0);
+    }
+
+    public void setInitialValue(SymbolTable.Sym sym, int value) {
+        myInitialValues.put(sym, value);
+    }
+
+    public void addMethod(IrMethod method) {
+        myMethods.add(method);
+    }
+
+    public List<IrMethod> getMethods() {
+        return myMethods;
+    }
+
+    // a label no other label of the program has: _L0, _L1, ...
+    public String newLabel() {
+        return "_L" + myLabelCount++;
+    }
+
+    private String myName;
+    private List<SymbolTable.Sym> myGlobals = new ArrayList<>();
+    private Map<SymbolTable.Sym, Integer> myInitialValues = new HashMap<>();
+    private List<IrMethod> myMethods = new ArrayList<>();
+    private int myLabelCount = 0;
+}
@@ -0,0 +1,32 @@
+// **********************************************************************
+// JumpInstr
+//    goto block
+// **********************************************************************
+class JumpInstr extends Instr {
+    public JumpInstr(BasicBlock target) {
+        myTarget = target;
+        srcs = new Operand[0];
+    }
+
+    public Instr copy() {
+        return new JumpInstr(myTarget);
+    }
+
+    public BasicBlock getTarget() {
+        return myTarget;
+    }
+
+    public void setTarget(BasicBlock target) {
+        myTarget = target;
+    }
+
+    public boolean isTerminator() {
+        return true;
+    }
+
+    public String toString() {
+        return "goto " + myTarget.getLabel();
+    }
+
+    private BasicBlock myTarget;
+}
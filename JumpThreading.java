@@ -0,0 +1,171 @@
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// **********************************************************************
+// JumpThreading
+//
+// Cleans up the control flow that nested ifs and loops are lowered to:
+//     - a jump or branch to a block that only jumps on goes straight to
+//       where that block jumps to
+//     - a branch to a block that only branches on the same comparison
+//       of the same operands goes straight to the target that branch
+//       takes, since its outcome is already known there
+//     - a branch on a comparison that a branch before it (on the only
+//       path there) already made, with the operands unchanged since, is
+//       a jump to the target for that outcome
+//     - a branch with both targets the same is a jump
+//     - a jump to a block that only returns is that return
+//     - a block that only one jump leads to is appended to the block
+//       of that jump
+// The blocks no longer jumped to are left to DeadCodeElimination.
+// **********************************************************************
+class JumpThreading extends Optimizer.MethodPass {
+
+    JumpThreading() {
+        super("jump-threading");
+    }
+
+    boolean run(IrMethod method) {
+        boolean changed = false;
+        for (BasicBlock block : method.getBlocks()) {
+            List<Instr> instrs = block.getInstrs();
+            if (instrs.isEmpty()) continue;
+            Instr last = instrs.get(instrs.size() - 1);
+            if (last instanceof JumpInstr) {
+                JumpInstr jump = (JumpInstr) last;
+                BasicBlock target = thread(jump.getTarget());
+                if (target != jump.getTarget()) {
+                    jump.setTarget(target);
+                    hits++;
+                    changed = true;
+                }
+                List<Instr> code = target.getInstrs();
+                if (code.size() == 1 && code.get(0) instanceof ReturnInstr) {
+                    instrs.set(instrs.size() - 1, code.get(0).copy());
+                    hits++;
+                    changed = true;
+                }
+            } else if (last instanceof BranchInstr) {
+                BranchInstr branch = (BranchInstr) last;
+                BasicBlock ifTrue = chain(branch, branch.getIfTrue(), true);
+                BasicBlock ifFalse = chain(branch, branch.getIfFalse(), false);
+                if (ifTrue != branch.getIfTrue() || ifFalse != branch.getIfFalse()) {
+                    branch.setIfTrue(ifTrue);
+                    branch.setIfFalse(ifFalse);
+                    hits++;
+                    changed = true;
+                }
+                if (ifTrue == ifFalse) {
+                    instrs.set(instrs.size() - 1, new JumpInstr(ifTrue));
+                    hits++;
+                    changed = true;
+                }
+            }
+        }
+        changed |= decide(method);
+        return merge(method) || changed;
+    }
+
+    // turn branches whose outcome is known on the way there into jumps
+    private boolean decide(IrMethod method) {
+        boolean changed = false;
+        Map<BasicBlock, List<BasicBlock>> preds = method.getPredecessors();
+        for (BasicBlock block : method.getBlocks()) {
+            List<Instr> instrs = block.getInstrs();
+            if (instrs.isEmpty() || !(instrs.get(instrs.size() - 1) instanceof BranchInstr)) continue;
+            BranchInstr branch = (BranchInstr) instrs.get(instrs.size() - 1);
+            Boolean taken = outcome(method, preds, block, branch);
+            if (taken == null) continue;
+            instrs.set(instrs.size() - 1, new JumpInstr(taken ? branch.getIfTrue() : branch.getIfFalse()));
+            preds = method.getPredecessors();
+            hits++;
+            changed = true;
+        }
+        return changed;
+    }
+
+    // the outcome of branch at the end of block if an earlier branch on
+    // the same comparison decides it, or null
+    private static Boolean outcome(IrMethod method, Map<BasicBlock, List<BasicBlock>> preds,
+                                   BasicBlock block, BranchInstr branch) {
+        Operand[] srcs = branch.getSrcs();
+        Set<BasicBlock> seen = new HashSet<>();
+        BasicBlock current = block;
+        while (seen.add(current)) {
+            for (Instr instr : current.getInstrs()) {
+                if (instr == branch) continue;
+                if (Arrays.asList(srcs).contains(instr.getDst())) return null;
+                if (instr instanceof CallInstr && (isGlobal(srcs[0]) || isGlobal(srcs[1]))) return null;
+            }
+            if (current == method.getBlocks().get(0) || preds.get(current).size() != 1) return null;
+            BasicBlock pred = preds.get(current).get(0);
+            List<Instr> code = pred.getInstrs();
+            Instr last = code.get(code.size() - 1);
+            if (last instanceof BranchInstr && ((BranchInstr) last).getOp() == branch.getOp()
+                    && Arrays.equals(last.getSrcs(), srcs)) {
+                BranchInstr earlier = (BranchInstr) last;
+                if (earlier.getIfTrue() == earlier.getIfFalse()) return null;
+                return earlier.getIfTrue() == current;
+            }
+            current = pred;
+        }
+        return null;
+    }
+
+    // where control goes from block on, passing blocks that only jump
+    private static BasicBlock thread(BasicBlock block) {
+        Set<BasicBlock> seen = new HashSet<>();
+        while (seen.add(block) && block.getInstrs().size() == 1
+                && block.getInstrs().get(0) instanceof JumpInstr) {
+            block = ((JumpInstr) block.getInstrs().get(0)).getTarget();
+        }
+        return block;
+    }
+
+    // where control goes from target on, which branch jumps to if the
+    // comparison came out as taken
+    private static BasicBlock chain(BranchInstr branch, BasicBlock target, boolean taken) {
+        Set<BasicBlock> seen = new HashSet<>();
+        target = thread(target);
+        while (seen.add(target) && target.getInstrs().size() == 1
+                && target.getInstrs().get(0) instanceof BranchInstr) {
+            BranchInstr next = (BranchInstr) target.getInstrs().get(0);
+            if (next.getOp() != branch.getOp() || !next.getSrcs()[0].equals(branch.getSrcs()[0])
+                    || !next.getSrcs()[1].equals(branch.getSrcs()[1])) {
+                break;
+            }
+            target = thread(taken ? next.getIfTrue() : next.getIfFalse());
+        }
+        return target;
+    }
+
+    private static boolean isGlobal(Operand o) {
+        return o instanceof Var && ((Var) o).isGlobal();
+    }
+
+    // append blocks that a single jump leads to onto the block of the jump
+    private boolean merge(IrMethod method) {
+        boolean changed = false;
+        List<BasicBlock> blocks = method.getBlocks();
+        Map<BasicBlock, List<BasicBlock>> preds = method.getPredecessors();
+        for (int i = 0; i < blocks.size(); i++) {
+            BasicBlock block = blocks.get(i);
+            List<Instr> instrs = block.getInstrs();
+            if (instrs.isEmpty() || !(instrs.get(instrs.size() - 1) instanceof JumpInstr)) continue;
+            BasicBlock next = ((JumpInstr) instrs.get(instrs.size() - 1)).getTarget();
+            if (next == block || next == blocks.get(0) || preds.get(next).size() != 1) continue;
+            instrs.remove(instrs.size() - 1);
+            instrs.addAll(next.getInstrs());
+            blocks.remove(next);
+            preds = method.getPredecessors();
+            //the merged block may end in a jump again
+            i = blocks.indexOf(block) - 1;
+            hits++;
+            changed = true;
+        }
+        return changed;
+    }
+}
@@ -0,0 +1,80 @@
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// **********************************************************************
+// Liveness
+//
+// Live variable analysis for one method (backward data flow over the
+// blocks, iterated until stable). An operand is live at a point if some
+// path from there reads it before writing it. Only operands that belong
+// to the method (Operand.isLocal) are tracked; globals always live in
+// memory.
+// **********************************************************************
+class Liveness {
+
+    Liveness(IrMethod method) {
+        List<BasicBlock> blocks = method.getBlocks();
+        Map<BasicBlock, Set<Operand>> uses = new HashMap<>();
+        Map<BasicBlock, Set<Operand>> defs = new HashMap<>();
+        for (BasicBlock block : blocks) {
+            Set<Operand> use = new HashSet<>();
+            Set<Operand> def = new HashSet<>();
+            for (Instr instr : block.getInstrs()) {
+                for (Operand src : instr.getSrcs()) {
+                    if (src.isLocal() && !def.contains(src)) use.add(src);
+                }
+                Operand dst = instr.getDst();
+                if (dst != null && dst.isLocal()) def.add(dst);
+            }
+            uses.put(block, use);
+            defs.put(block, def);
+            myLiveIn.put(block, new HashSet<>());
+            myLiveOut.put(block, new HashSet<>());
+        }
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = blocks.size() - 1; i >= 0; i--) {
+                BasicBlock block = blocks.get(i);
+                Set<Operand> out = myLiveOut.get(block);
+                for (BasicBlock succ : block.getSuccessors()) {
+                    out.addAll(myLiveIn.get(succ));
+                }
+                Set<Operand> in = new HashSet<>(out);
+                in.removeAll(defs.get(block));
+                in.addAll(uses.get(block));
+                if (!in.equals(myLiveIn.get(block))) {
+                    myLiveIn.put(block, in);
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    // operands live at the start of the block
+    public Set<Operand> getLiveIn(BasicBlock block) {
+        return myLiveIn.get(block);
+    }
+
+    // operands live at the end of the block
+    public Set<Operand> getLiveOut(BasicBlock block) {
+        return myLiveOut.get(block);
+    }
+
+    // update the set of operands live after instr to the set live
+    // before it
+    public static void transfer(Instr instr, Set<Operand> live) {
+        Operand dst = instr.getDst();
+        if (dst != null) live.remove(dst);
+        for (Operand src : instr.getSrcs()) {
+            if (src.isLocal()) live.add(src);
+        }
+    }
+
+    private Map<BasicBlock, Set<Operand>> myLiveIn = new HashMap<>();
+    private Map<BasicBlock, Set<Operand>> myLiveOut = new HashMap<>();
+}
@@ -0,0 +1,193 @@
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// **********************************************************************
+// LoadStoreElimination
+//
+// Globals live in memory, every read of one is a load and every
+// assignment a store. This pass removes the ones that are not needed:
+//     - a global that a loop reads but does not change (neither directly
+//       nor through a call, see SideEffects) is loaded into a temp once
+//       in the preheader, and the loop reads the temp
+//     - a global read more than once in a block is loaded into a temp
+//       before the first read, as long as nothing in between changes it;
+//       storing that temp back into the global right away is dropped
+//     - a store into a global is dropped if the block stores into it
+//       again before anything (including a call) can read it
+// **********************************************************************
+class LoadStoreElimination extends Optimizer.Pass {
+
+    LoadStoreElimination() {
+        super("load-store");
+    }
+
+    boolean run(IrProgram program) {
+        SideEffects effects = new SideEffects(program);
+        boolean changed = false;
+        for (IrMethod method : program.getMethods()) {
+            boolean again = true;
+            while (again) {
+                again = false;
+                Loops loops = new Loops(method);
+                for (Loops.Loop loop : loops.getLoops()) {
+                    if (promote(method, loops, loop, effects)) {
+                        again = true;
+                        changed = true;
+                        break;
+                    }
+                }
+            }
+            for (BasicBlock block : method.getBlocks()) {
+                changed |= reuseLoads(method, block, effects);
+                changed |= removeStores(block, effects);
+            }
+        }
+        return changed;
+    }
+
+    // read the globals loop does not change from temps loaded in the
+    // preheader; returns true if there were any
+    private boolean promote(IrMethod method, Loops loops, Loops.Loop loop, SideEffects effects) {
+        Set<Operand> written = new HashSet<>();
+        Set<Operand> read = new HashSet<>();
+        for (BasicBlock block : loop.getBlocks()) {
+            for (Instr instr : block.getInstrs()) {
+                if (isGlobal(instr.getDst())) written.add(instr.getDst());
+                if (instr instanceof CallInstr) {
+                    for (SymbolTable.Sym sym : effects.getWrites(((CallInstr) instr).getName())) {
+                        written.add(new Var(sym));
+                    }
+                }
+                for (Operand src : instr.getSrcs()) {
+                    if (isGlobal(src)) read.add(src);
+                }
+            }
+        }
+        read.removeAll(written);
+        if (read.isEmpty()) return false;
+
+        Map<Operand, Temp> temps = new HashMap<>();
+        List<Instr> pre = loops.getPreheader(loop).getInstrs();
+        for (Operand global : read) {
+            Temp temp = method.newTemp(((Var) global).getSym().getMyType());
+            temps.put(global, temp);
+            pre.add(pre.size() - 1, new MoveInstr(temp, global));
+        }
+        for (BasicBlock block : loop.getBlocks()) {
+            for (Instr instr : block.getInstrs()) {
+                Operand[] srcs = instr.getSrcs();
+                for (int i = 0; i < srcs.length; i++) {
+                    if (temps.containsKey(srcs[i])) instr.setSrc(i, temps.get(srcs[i]));
+                }
+            }
+        }
+        hits += read.size();
+        return true;
+    }
+
+    // load a global read more than once only once
+    private boolean reuseLoads(IrMethod method, BasicBlock block, SideEffects effects) {
+        boolean changed = false;
+        //globals loaded into a temp of ours, and that temp
+        Map<Operand, Temp> loaded = new HashMap<>();
+        List<Instr> instrs = block.getInstrs();
+        for (int i = 0; i < instrs.size(); i++) {
+            Instr instr = instrs.get(i);
+            Operand[] srcs = instr.getSrcs();
+            Operand dst = instr.getDst();
+            if (instr instanceof MoveInstr && isGlobal(dst) && srcs[0].equals(loaded.get(dst))) {
+                //stores the value the global has
+                instrs.remove(i--);
+                hits++;
+                changed = true;
+                continue;
+            }
+            for (int j = 0; j < srcs.length; j++) {
+                Operand global = srcs[j];
+                if (!isGlobal(global)) continue;
+                if (!loaded.containsKey(global) && readAgain(instrs, i, global, effects)) {
+                    Temp temp = method.newTemp(((Var) global).getSym().getMyType());
+                    instrs.add(i++, new MoveInstr(temp, global));
+                    loaded.put(global, temp);
+                }
+                if (loaded.containsKey(global)) {
+                    instr.setSrc(j, loaded.get(global));
+                    hits++;
+                    changed = true;
+                }
+            }
+            if (isGlobal(dst)) loaded.remove(dst);
+            if (instr instanceof CallInstr) {
+                for (SymbolTable.Sym sym : effects.getWrites(((CallInstr) instr).getName())) {
+                    loaded.remove(new Var(sym));
+                }
+            }
+        }
+        return changed;
+    }
+
+    // true if global is read again after the read in instruction i, before
+    // it may be changed
+    private static boolean readAgain(List<Instr> instrs, int i, Operand global, SideEffects effects) {
+        Operand[] srcs = instrs.get(i).getSrcs();
+        int count = 0;
+        for (Operand src : srcs) {
+            if (src.equals(global)) count++;
+        }
+        if (count > 1) return true;
+        for (int k = i; k < instrs.size(); k++) {
+            Instr instr = instrs.get(k);
+            if (k > i) {
+                for (Operand src : instr.getSrcs()) {
+                    if (src.equals(global)) return true;
+                }
+            }
+            if (global.equals(instr.getDst())) return false;
+            if (instr instanceof CallInstr && effects.getWrites(((CallInstr) instr).getName())
+                    .contains(((Var) global).getSym())) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    // drop stores into globals that the block overwrites before anything
+    // can read them
+    private boolean removeStores(BasicBlock block, SideEffects effects) {
+        boolean changed = false;
+        //globals stored into later in the block and not read before
+        Set<Operand> overwritten = new HashSet<>();
+        List<Instr> instrs = block.getInstrs();
+        for (int i = instrs.size() - 1; i >= 0; i--) {
+            Instr instr = instrs.get(i);
+            Operand dst = instr.getDst();
+            if (isGlobal(dst)) {
+                if (overwritten.contains(dst) && instr instanceof CallInstr) {
+                    instr.setDst(null);
+                    hits++;
+                    changed = true;
+                } else if (overwritten.contains(dst)) {
+                    instrs.remove(i);
+                    hits++;
+                    changed = true;
+                    continue;
+                }
+                overwritten.add(dst);
+            }
+            for (Operand src : instr.getSrcs()) overwritten.remove(src);
+            if (instr instanceof CallInstr) {
+                for (SymbolTable.Sym sym : effects.getReads(((CallInstr) instr).getName())) {
+                    overwritten.remove(new Var(sym));
+                }
+            }
+        }
+        return changed;
+    }
+
+    private static boolean isGlobal(Operand o) {
+        return o instanceof Var && ((Var) o).isGlobal();
+    }
+}
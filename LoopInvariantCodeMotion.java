@@ -0,0 +1,154 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// **********************************************************************
+// LoopInvariantCodeMotion
+//
+// Computations in a loop (see Loops) whose operands do not change while
+// it runs are moved to the preheader, so they are done once before the
+// loop instead of in every iteration:
+//     do { s = s + n * n; i = i + 1; } while (i < n)
+//  => t = n * n; do { s = s + t; i = i + 1; } while (i < n)
+//
+// An instruction is invariant if each operand is a constant, a temp or
+// local that the loop does not assign, a global the loop (and the
+// methods it calls, see SideEffects) does not change, or the result of
+// an invariant instruction already moved. It is moved if in addition
+//     - it defines a temp or local that has no other definition in the
+//       loop and is not read in the loop before it is defined
+//     - it is executed in every iteration that leaves the loop (its
+//       block dominates the exits), or its result is not needed after
+//       the loop
+//     - for a division: the divisor is a constant other than 0 (a
+//       division by zero must fail where the program does it)
+//     - for a call: the callee neither prints nor changes a global and
+//       surely returns (done early, a failing call would fail before
+//       what the loop does ahead of it), and the call is executed in
+//       every iteration that leaves the loop
+// **********************************************************************
+class LoopInvariantCodeMotion extends Optimizer.Pass {
+
+    LoopInvariantCodeMotion() {
+        super("licm");
+    }
+
+    boolean run(IrProgram program) {
+        SideEffects effects = new SideEffects(program);
+        boolean changed = false;
+        for (IrMethod method : program.getMethods()) {
+            boolean again = true;
+            while (again) {
+                again = false;
+                Loops loops = new Loops(method);
+                Liveness liveness = new Liveness(method);
+                for (Loops.Loop loop : loops.getLoops()) {
+                    if (hoist(loops, loop, liveness, effects)) {
+                        //the blocks have changed
+                        again = true;
+                        changed = true;
+                        break;
+                    }
+                }
+            }
+        }
+        return changed;
+    }
+
+    // move the invariant instructions of loop to its preheader; returns
+    // true if there were any
+    private boolean hoist(Loops loops, Loops.Loop loop, Liveness liveness, SideEffects effects) {
+        Map<Operand, Integer> defs = new HashMap<>();
+        Set<SymbolTable.Sym> written = new HashSet<>();
+        for (BasicBlock block : loop.getBlocks()) {
+            for (Instr instr : block.getInstrs()) {
+                Operand dst = instr.getDst();
+                if (dst != null) defs.merge(dst, 1, Integer::sum);
+                if (dst instanceof Var && ((Var) dst).isGlobal()) {
+                    written.add(((Var) dst).getSym());
+                }
+                if (instr instanceof CallInstr) {
+                    written.addAll(effects.getWrites(((CallInstr) instr).getName()));
+                }
+            }
+        }
+        Set<Operand> liveAtHeader = liveness.getLiveIn(loop.getHeader());
+        Set<Operand> liveAfter = new HashSet<>();
+        Set<BasicBlock> exits = loop.getExits();
+        for (BasicBlock exit : exits) {
+            liveAfter.addAll(liveness.getLiveIn(exit));
+        }
+
+        List<Instr> hoisted = new ArrayList<>();
+        boolean progress = true;
+        while (progress) {
+            progress = false;
+            for (BasicBlock block : loop.getBlocks()) {
+                boolean always = dominatesExits(loops, loop, block);
+                List<Instr> instrs = block.getInstrs();
+                for (int i = 0; i < instrs.size(); i++) {
+                    Instr instr = instrs.get(i);
+                    if (!isInvariant(instr, defs, written, effects)) continue;
+                    Operand dst = instr.getDst();
+                    if (defs.get(dst) != 1 || liveAtHeader.contains(dst)) continue;
+                    if (!always && (instr instanceof CallInstr || liveAfter.contains(dst))) continue;
+                    instrs.remove(i--);
+                    defs.remove(dst);
+                    hoisted.add(instr);
+                    progress = true;
+                }
+            }
+        }
+        if (hoisted.isEmpty()) return false;
+        List<Instr> instrs = loops.getPreheader(loop).getInstrs();
+        instrs.addAll(instrs.size() - 1, hoisted);
+        hits += hoisted.size();
+        return true;
+    }
+
+    // true if block is passed on every way out of loop
+    private static boolean dominatesExits(Loops loops, Loops.Loop loop, BasicBlock block) {
+        for (BasicBlock from : loop.getBlocks()) {
+            for (BasicBlock succ : from.getSuccessors()) {
+                if (!loop.getBlocks().contains(succ) && !loops.dominates(block, from)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    // true if instr computes the same value in every iteration and can be
+    // done early (see above)
+    private static boolean isInvariant(Instr instr, Map<Operand, Integer> defs,
+                                       Set<SymbolTable.Sym> written, SideEffects effects) {
+        Operand dst = instr.getDst();
+        if (dst == null || !dst.isLocal()) return false;
+        if (instr instanceof CallInstr) {
+            String name = ((CallInstr) instr).getName();
+            if (!effects.isPure(name) || !effects.surelyReturns(name)) return false;
+            for (SymbolTable.Sym sym : effects.getReads(name)) {
+                if (written.contains(sym)) return false;
+            }
+        } else if (instr instanceof BinInstr) {
+            Operand divisor = instr.getSrcs()[1];
+            if (((BinInstr) instr).getOp() == Op.DIV
+                    && (!(divisor instanceof Const) || ((Const) divisor).getValue() == 0)) {
+                return false;
+            }
+        } else if (!(instr instanceof MoveInstr) && !(instr instanceof UnInstr)) {
+            return false;
+        }
+        for (Operand src : instr.getSrcs()) {
+            if (src instanceof Var && ((Var) src).isGlobal()) {
+                if (written.contains(((Var) src).getSym())) return false;
+            } else if (src.isLocal() && defs.containsKey(src)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
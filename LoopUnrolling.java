@@ -0,0 +1,114 @@
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// **********************************************************************
+// LoopUnrolling
+//
+// A counted loop that is a single block
+//     H: body; i = i + c; if i < n goto H else X
+// (c > 0 and n not changed by the loop; also with c < 0 and i > n) is
+// given a copy that does UNROLL_FACTOR iterations per test:
+//     P: limit = n - (UNROLL_FACTOR - 1) * c
+//        if limit < n goto G else H        (else: limit wrapped around)
+//     G: if i < limit goto U else H
+//     U: (body; i = i + c) UNROLL_FACTOR times
+//        if i < limit goto U else T
+//     T: if i < n goto H else X
+//     H: the original loop, for the iterations that are left
+// As long as i < limit at the top of U, the tests left out between the
+// copies would all have been true. When n is a constant the test in P
+// folds away. Loops with a body of more than MAX_UNROLL_SIZE
+// instructions (after unrolling) are left as they are.
+// **********************************************************************
+class LoopUnrolling extends Optimizer.MethodPass {
+
+    // iterations done per test; 1 turns unrolling off
+    static int UNROLL_FACTOR = 4;
+    // largest unrolled body
+    static int MAX_UNROLL_SIZE = 64;
+
+    LoopUnrolling() {
+        super("unrolling");
+    }
+
+    boolean run(IrMethod method) {
+        if (UNROLL_FACTOR < 2) return false;
+        boolean changed = false;
+        boolean again = true;
+        while (again) {
+            again = false;
+            Loops loops = new Loops(method);
+            for (Loops.Loop loop : loops.getLoops()) {
+                if (!myDone.contains(loop.getHeader()) && unroll(method, loops, loop)) {
+                    again = true;
+                    changed = true;
+                    break;
+                }
+            }
+        }
+        return changed;
+    }
+
+    private boolean unroll(IrMethod method, Loops loops, Loops.Loop loop) {
+        BasicBlock header = loop.getHeader();
+        if (loop.getBlocks().size() != 1) return false;
+        List<Instr> instrs = header.getInstrs();
+        if (!(header.getLast() instanceof BranchInstr)
+                || (instrs.size() - 1) * UNROLL_FACTOR > MAX_UNROLL_SIZE) {
+            return false;
+        }
+        BranchInstr branch = (BranchInstr) header.getLast();
+        boolean loopIfTrue = branch.getIfTrue() == header;
+        int op = loopIfTrue ? branch.getOp() : Backend.negate(branch.getOp());
+        BasicBlock exit = loopIfTrue ? branch.getIfFalse() : branch.getIfTrue();
+        Operand i = branch.getSrcs()[0];
+        Operand n = branch.getSrcs()[1];
+
+        //i is stepped by a constant exactly once, n is not changed
+        Integer step = null;
+        for (Instr instr : instrs) {
+            Operand dst = instr.getDst();
+            if (dst != null && dst.equals(n) || instr instanceof CallInstr && !(n instanceof Const)) {
+                return false;
+            }
+            if (dst != null && dst.equals(i)) {
+                if (step != null) return false;
+                step = InductionVariables.step(instr);
+                if (step == null) return false;
+            }
+        }
+        if (step == null || !i.isLocal() || n instanceof StrConst
+                || !(op == Op.LT && step > 0 || op == Op.GT && step < 0)
+                || Math.abs(step) > 1000) {
+            return false;
+        }
+
+        BasicBlock guard = method.newBlock();
+        BasicBlock unrolled = method.newBlock();
+        BasicBlock test = method.newBlock();
+        Temp limit = method.newTemp(Types.IntType);
+        BasicBlock preheader = loops.getPreheader(loop);
+        List<Instr> pre = preheader.getInstrs();
+        pre.add(pre.size() - 1, new BinInstr(Op.SUB, limit, n, new Const((UNROLL_FACTOR - 1) * step)));
+        pre.set(pre.size() - 1, new BranchInstr(op, limit, n, guard, header));
+        guard.getInstrs().add(new BranchInstr(op, i, limit, unrolled, header));
+        for (int k = 0; k < UNROLL_FACTOR; k++) {
+            for (Instr instr : instrs.subList(0, instrs.size() - 1)) {
+                unrolled.getInstrs().add(instr.copy());
+            }
+        }
+        unrolled.getInstrs().add(new BranchInstr(op, i, limit, unrolled, test));
+        test.getInstrs().add(new BranchInstr(op, i, n, header, exit));
+
+        List<BasicBlock> blocks = method.getBlocks();
+        blocks.addAll(blocks.indexOf(header), List.of(guard, unrolled, test));
+        myDone.add(header);
+        myDone.add(unrolled);
+        hits++;
+        return true;
+    }
+
+    // headers of the loops made or already unrolled
+    private Set<BasicBlock> myDone = new HashSet<>();
+}
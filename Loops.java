@@ -0,0 +1,167 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// **********************************************************************
+// Loops
+//
+// The loops of one method, found on its control flow graph: a block h
+// dominates a block b if every path from the first block to b passes
+// through h; an edge b -> h where h dominates b is a back edge, and the
+// loop of h consists of h and all blocks that reach b without passing
+// through h. Loops with the same header are merged. A do-while loop of
+// the source is one such loop, its header is the first block of the
+// body.
+// **********************************************************************
+class Loops {
+
+    // **********************************************************************
+    // Loop
+    // **********************************************************************
+    static class Loop {
+        Loop(BasicBlock header) {
+            myHeader = header;
+        }
+
+        public BasicBlock getHeader() {
+            return myHeader;
+        }
+
+        // blocks of the loop, the header first
+        public Set<BasicBlock> getBlocks() {
+            return myBlocks;
+        }
+
+        // blocks of the loop that jump back to the header
+        public List<BasicBlock> getLatches() {
+            return myLatches;
+        }
+
+        // blocks outside the loop that the loop may continue with
+        public Set<BasicBlock> getExits() {
+            Set<BasicBlock> exits = new LinkedHashSet<>();
+            for (BasicBlock block : myBlocks) {
+                for (BasicBlock succ : block.getSuccessors()) {
+                    if (!myBlocks.contains(succ)) exits.add(succ);
+                }
+            }
+            return exits;
+        }
+
+        private BasicBlock myHeader;
+        private Set<BasicBlock> myBlocks = new LinkedHashSet<>();
+        private List<BasicBlock> myLatches = new ArrayList<>();
+    }
+
+    Loops(IrMethod method) {
+        myMethod = method;
+        List<BasicBlock> blocks = method.getBlocks();
+        Map<BasicBlock, List<BasicBlock>> preds = method.getPredecessors();
+
+        //dominators, iterated until stable
+        Set<BasicBlock> all = new HashSet<>(blocks);
+        for (BasicBlock block : blocks) {
+            myDominators.put(block, new HashSet<>(all));
+        }
+        myDominators.put(blocks.get(0), new HashSet<>(Set.of(blocks.get(0))));
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = 1; i < blocks.size(); i++) {
+                BasicBlock block = blocks.get(i);
+                Set<BasicBlock> dom = new HashSet<>(all);
+                for (BasicBlock pred : preds.get(block)) {
+                    dom.retainAll(myDominators.get(pred));
+                }
+                dom.add(block);
+                if (!dom.equals(myDominators.get(block))) {
+                    myDominators.put(block, dom);
+                    changed = true;
+                }
+            }
+        }
+
+        //blocks nothing reaches would look dominated by every block
+        Set<BasicBlock> reached = new HashSet<>(Set.of(blocks.get(0)));
+        List<BasicBlock> work = new ArrayList<>(reached);
+        while (!work.isEmpty()) {
+            for (BasicBlock succ : work.remove(work.size() - 1).getSuccessors()) {
+                if (reached.add(succ)) work.add(succ);
+            }
+        }
+
+        Map<BasicBlock, Loop> byHeader = new HashMap<>();
+        for (BasicBlock block : blocks) {
+            if (!reached.contains(block)) continue;
+            for (BasicBlock succ : block.getSuccessors()) {
+                if (!dominates(succ, block)) continue;
+                Loop loop = byHeader.get(succ);
+                if (loop == null) {
+                    loop = new Loop(succ);
+                    loop.myBlocks.add(succ);
+                    byHeader.put(succ, loop);
+                    myLoops.add(loop);
+                }
+                loop.myLatches.add(block);
+                if (loop.myBlocks.add(block)) work.add(block);
+                while (!work.isEmpty()) {
+                    for (BasicBlock pred : preds.get(work.remove(work.size() - 1))) {
+                        if (reached.contains(pred) && loop.myBlocks.add(pred)) work.add(pred);
+                    }
+                }
+            }
+        }
+        //inner loops first
+        myLoops.sort((a, b) -> a.myBlocks.size() - b.myBlocks.size());
+    }
+
+    public List<Loop> getLoops() {
+        return myLoops;
+    }
+
+    // true if every path from the first block to b passes through a
+    public boolean dominates(BasicBlock a, BasicBlock b) {
+        return myDominators.get(b).contains(a);
+    }
+
+    // **********************************************************************
+    // getPreheader
+    //    the block that all edges into the loop from outside come from,
+    //    made if there is none: a new block placed before the header that
+    //    jumps to it. Code put before its terminator runs once before the
+    //    loop is entered.
+    // **********************************************************************
+    public BasicBlock getPreheader(Loop loop) {
+        BasicBlock header = loop.getHeader();
+        List<BasicBlock> outside = new ArrayList<>();
+        for (BasicBlock pred : myMethod.getPredecessors().get(header)) {
+            if (!loop.getBlocks().contains(pred)) outside.add(pred);
+        }
+        if (outside.size() == 1 && outside.get(0).getLast() instanceof JumpInstr) {
+            return outside.get(0);
+        }
+        BasicBlock preheader = myMethod.newBlock();
+        preheader.getInstrs().add(new JumpInstr(header));
+        for (BasicBlock pred : outside) {
+            Instr last = pred.getLast();
+            if (last instanceof JumpInstr) {
+                ((JumpInstr) last).setTarget(preheader);
+            } else {
+                BranchInstr branch = (BranchInstr) last;
+                if (branch.getIfTrue() == header) branch.setIfTrue(preheader);
+                if (branch.getIfFalse() == header) branch.setIfFalse(preheader);
+            }
+        }
+        List<BasicBlock> blocks = myMethod.getBlocks();
+        blocks.add(blocks.indexOf(header), preheader);
+        return preheader;
+    }
+
+    private IrMethod myMethod;
+    private Map<BasicBlock, Set<BasicBlock>> myDominators = new HashMap<>();
+    private List<Loop> myLoops = new ArrayList<>();
+}
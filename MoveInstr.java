@@ -0,0 +1,18 @@
+// **********************************************************************
+// MoveInstr
+//    dst = src
+// **********************************************************************
+class MoveInstr extends Instr {
+    public MoveInstr(Operand d, Operand src) {
+        dst = d;
+        srcs = new Operand[]{src};
+    }
+
+    public Instr copy() {
+        return new MoveInstr(dst, srcs[0]);
+    }
+
+    public String toString() {
+        return dst + " = " + srcs[0];
+    }
+}
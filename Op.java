@@ -0,0 +1,111 @@
+// **********************************************************************
+// Op (operators of BinInstr, UnInstr and BranchInstr)
+// **********************************************************************
+class Op {
+    public static final int ADD = 0;
+    public static final int SUB = 1;
+    public static final int MUL = 2;
+    public static final int DIV = 3;
+    public static final int POW = 4;
+    public static final int AND = 5;
+    public static final int OR = 6;
+    public static final int EQ = 7;
+    public static final int NE = 8;
+    public static final int LT = 9;
+    public static final int GT = 10;
+    public static final int LE = 11;
+    public static final int GE = 12;
+    public static final int NEG = 13;
+    public static final int NOT = 14;
+    // only made by the optimizer (see StrengthReduction)
+    public static final int SHL = 15;
+    public static final int SHR = 16;
+    public static final int SHRU = 17;
+    public static final int MULHI = 18;
+
+    public static String ToString(int op) {
+        switch (op) {
+            case ADD: return "+";
+            case SUB: return "-";
+            case MUL: return "*";
+            case DIV: return "/";
+            case POW: return "**";
+            case AND: return "&&";
+            case OR: return "||";
+            case EQ: return "==";
+            case NE: return "!=";
+            case LT: return "<";
+            case GT: return ">";
+            case LE: return "<=";
+            case GE: return ">=";
+            case NEG: return "-";
+            case NOT: return "!";
+            case SHL: return "<<";
+            case SHR: return ">>";
+            case SHRU: return ">>>";
+            case MULHI: return "*hi";
+            default: throw new RuntimeException();
+        }
+    }
+
+    // true for the operators that compare two values
+    public static boolean isCompare(int op) {
+        return op >= EQ && op <= GE;
+    }
+
+    // value of the compare a op b
+    public static boolean test(int op, int a, int b) {
+        switch (op) {
+            case EQ: return a == b;
+            case NE: return a != b;
+            case LT: return a < b;
+            case GT: return a > b;
+            case LE: return a <= b;
+            case GE: return a >= b;
+            default: throw new RuntimeException();
+        }
+    }
+
+    // value of a op b with the 32 bit arithmetic of the target, or null
+    // if it has to be left to run time (division by zero). Overflow
+    // wraps around, here as in the code Backend generates, so folding
+    // and rewriting arithmetic never changes what a program computes
+    // (nor makes it trap)
+    public static Integer eval(int op, int a, int b) {
+        switch (op) {
+            case ADD: return a + b;
+            case SUB: return a - b;
+            case MUL: return a * b;
+            case DIV: return b == 0 ? null : a / b;
+            case POW:
+                //like _pow in the runtime, exponents below 1 give 1
+                int result = 1;
+                for (; b > 0; b >>= 1) {
+                    if ((b & 1) != 0) result *= a;
+                    a *= a;
+                }
+                return result;
+            case AND: return a & b;
+            case OR: return a | b;
+            case SHL: return a << b;
+            case SHR: return a >> b;
+            case SHRU: return a >>> b;
+            //upper word of the 64 bit product
+            case MULHI: return (int) (((long) a * b) >> 32);
+            default: return test(op, a, b) ? 1 : 0;
+        }
+    }
+
+    // value of op a
+    public static int eval(int op, int a) {
+        return op == NEG ? -a : a ^ 1;
+    }
+
+    // type of the value the operator computes
+    public static int resultType(int op) {
+        if (isCompare(op) || op == AND || op == OR || op == NOT) {
+            return Types.BoolType;
+        }
+        return Types.IntType;
+    }
+}
@@ -0,0 +1,11 @@
+// **********************************************************************
+// Operand
+//    operand of an Instr (Temp, Var, Const or StrConst)
+// **********************************************************************
+abstract class Operand {
+    // true for operands that only the method itself can change (temps,
+    // locals and parameters), they may live in registers
+    public boolean isLocal() {
+        return false;
+    }
+}
@@ -0,0 +1,99 @@
+import java.io.PrintStream;
+
+// **********************************************************************
+// Optimizer
+//
+// Runs the passes of the pass table over the IR of a program before
+// Backend translates it. The table is applied repeatedly until no pass
+// changes the program any more (or MAX_ROUNDS is reached), so that a
+// pass can work on the result of the passes after it.
+// **********************************************************************
+public class Optimizer {
+
+    // set to false to translate the IR as it was lowered
+    public static boolean enabled = true;
+
+    private static final int MAX_ROUNDS = 10;
+
+    // **********************************************************************
+    // Pass
+    //    a transformation of the whole program; returns true if the
+    //    program was changed
+    // **********************************************************************
+    abstract static class Pass {
+        String name;
+        boolean enabled = true;
+        int hits = 0;
+
+        Pass(String name) {
+            this.name = name;
+        }
+
+        abstract boolean run(IrProgram program);
+    }
+
+    // **********************************************************************
+    // MethodPass
+    //    a pass that looks at one method at a time
+    // **********************************************************************
+    abstract static class MethodPass extends Pass {
+        MethodPass(String name) {
+            super(name);
+        }
+
+        boolean run(IrProgram program) {
+            boolean changed = false;
+            for (IrMethod method : program.getMethods()) {
+                changed |= run(method);
+            }
+            return changed;
+        }
+
+        abstract boolean run(IrMethod method);
+    }
+
+    // the pass table, run in this order in every round
+    static final Pass[] PASSES = {
+        new Inliner(),
+        new ConstantFolding(),
+        new StrengthReduction(),
+        new ValueNumbering(),
+        new CopyPropagation(),
+        new JumpThreading(),
+        new DeadCodeElimination(),
+        new TailCalls(),
+        new LoopInvariantCodeMotion(),
+        new InductionVariables(),
+        new LoopUnrolling(),
+        new LoadStoreElimination(),
+        new StaticInit(),
+        new DeadDeclElimination(),
+    };
+
+    // **********************************************************************
+    // optimize
+    //    run the pass table over the program until nothing changes
+    // **********************************************************************
+    public static void optimize(IrProgram program) {
+        if (!enabled) return;
+        for (int round = 0; round < MAX_ROUNDS; round++) {
+            boolean changed = false;
+            for (Pass pass : PASSES) {
+                if (pass.enabled) changed |= pass.run(program);
+            }
+            if (!changed) break;
+        }
+    }
+
+    // **********************************************************************
+    // printStats
+    //    write how often each pass changed the program
+    // **********************************************************************
+    public static void printStats(PrintStream out) {
+        StringBuilder sb = new StringBuilder("Optimizer:");
+        for (Pass pass : PASSES) {
+            sb.append(" " + pass.name + "=" + pass.hits);
+        }
+        out.println(sb.toString());
+    }
+}
@@ -8,6 +8,8 @@ import java_cup.runtime.*;
 //    1. the file to be parsed
 //    2. the output file into which the AST built by the parser
 //       should be unparsed.
+// A third argument -delay makes the code run on MIPS cores with branch
+// delay slots (see Scheduler) instead of SPIM.
 // The program opens the files, creates a scanner and a parser, and
 // calls the parser.  If the parse is successful, the name analyzer is
 // called and the AST is then unparsed.  If there have been no
@@ -19,11 +21,13 @@ public class P5 {
 	throws IOException // may be thrown by the scanner
     {
 	// check for command-line arg
-	if (args.length != 2) {
+	if (args.length != 2 && !(args.length == 3 && args[2].equals("-delay"))) {
 	    System.err.println("please supply name of file to be parsed " +
-			       "and name of file for unparsing");
+			       "and name of file for unparsing (and -delay " +
+			       "for delay slots)");
 	    System.exit(-1);
 	}
+	Scheduler.enabled = args.length == 3;
 
 	// open input file
 	FileReader inFile = null;
@@ -66,11 +70,22 @@ public class P5 {
 			System.out.println("Type check complete, errors found: " + Errors.getErrors() + ", warnings found: " + Errors.getWarnings());
 
 		}
+		StringWriter code = new StringWriter();
 		if(Errors.getErrors() == 0){
-			((ProgramNode)root.value).codeGen();
+			((ProgramNode)root.value).codeGen(new PrintWriter(code));
 			System.out.println("Code generation complete");
 		}
-		Codegen.closePrinter();
+		try {
+		    Codegen.writeCode(code.toString(), IO.openOutputFile("Assembler.a"));
+		} catch (IOException ex) {
+		    System.err.println("File Assembler.a could not be opened.");
+		    System.exit(-1);
+		}
+		if(Errors.getErrors() == 0){
+			Optimizer.printStats(System.out);
+			Peephole.printStats(System.out);
+			Scheduler.printStats(System.out);
+		}
 		//((ASTnode)root.value).decompile(outFile, 0);
 		outFile.close();
 		return;
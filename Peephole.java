@@ -0,0 +1,275 @@
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+// **********************************************************************
+// Peephole
+//
+// Windowed peephole optimizer over the generated MIPS code. Codegen
+// collects everything it emits; before the code is written to the
+// output file, a small window slides over it and every rule of the rule
+// table is tried at the current position. When a rule rewrites the code
+// the window moves back a few lines, so that rules can match on code
+// created by other rules.
+// **********************************************************************
+public class Peephole {
+
+    // set to false to write the code unchanged
+    public static boolean enabled = true;
+
+    // how far the window moves back after a rewrite
+    private static final int WINDOW = 4;
+
+    // **********************************************************************
+    // Line
+    //    one line of generated code: a label, an instruction or anything
+    //    else (directives, data), which no rule looks through
+    // **********************************************************************
+    static class Line {
+        String text;
+        String label;
+        String op;
+        String[] args = new String[0];
+
+        Line(String text) {
+            this.text = text;
+            String code = text;
+            if (code.trim().startsWith(".")) return;
+            int colon = code.indexOf(':');
+            if (!code.startsWith("\t") && colon > 0) {
+                if (code.substring(colon + 1).trim().length() == 0
+                        || code.substring(colon + 1).trim().startsWith("#")) {
+                    label = code.substring(0, colon);
+                }
+                return;
+            }
+            int hash = code.indexOf('#');
+            if (hash >= 0) code = code.substring(0, hash);
+            code = code.trim();
+            if (code.length() == 0) return;
+            int space = code.indexOf(' ');
+            if (space < 0 && code.indexOf('\t') >= 0) space = code.indexOf('\t');
+            if (space < 0) {
+                op = code;
+                return;
+            }
+            op = code.substring(0, space);
+            args = code.substring(space + 1).trim().split("\\s*,\\s*");
+        }
+
+        static Line instr(String op, String... args) {
+            int space = Math.max(1, 6 - op.length());
+            StringBuilder sb = new StringBuilder("\t" + op);
+            for (int k = 0; k < space; k++) sb.append(" ");
+            sb.append(String.join(", ", args));
+            return new Line(sb.toString());
+        }
+
+        boolean is(String op, String... args) {
+            if (!op.equals(this.op) || args.length != this.args.length) {
+                return false;
+            }
+            for (int k = 0; k < args.length; k++) {
+                if (args[k] != null && !args[k].equals(this.args[k])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    // **********************************************************************
+    // Rule
+    //    a rewrite of the code window starting at position i; returns
+    //    true if the code was changed
+    // **********************************************************************
+    abstract static class Rule {
+        String name;
+        int hits = 0;
+
+        Rule(String name) {
+            this.name = name;
+        }
+
+        abstract boolean apply(List<Line> code, int i);
+    }
+
+    // the rule table, tried in this order at every position
+    static final Rule[] RULES = {
+        // sw R, 0($sp) / subu $sp,$sp,4 / addu $sp,$sp,4 / lw Q, 0($sp)
+        new Rule("push-pop") {
+            boolean apply(List<Line> code, int i) {
+                String pushed = pushed(code, i);
+                String popped = popped(code, i + 2);
+                if (pushed == null || popped == null) return false;
+                remove(code, i, 4);
+                if (!pushed.equals(popped)) {
+                    code.add(i, Line.instr("move", popped, pushed));
+                }
+                return true;
+            }
+        },
+        // addu $sp,$sp,4 / lw R, 0($sp) / sw R, 0($sp) / subu $sp,$sp,4
+        new Rule("pop-push") {
+            boolean apply(List<Line> code, int i) {
+                String popped = popped(code, i);
+                String pushed = pushed(code, i + 2);
+                if (popped == null || !popped.equals(pushed)) return false;
+                remove(code, i, 4);
+                code.add(i, Line.instr("lw", popped, "4($sp)"));
+                return true;
+            }
+        },
+        // two adjustments of $sp in a row become one (or none)
+        new Rule("sp-adjust") {
+            boolean apply(List<Line> code, int i) {
+                Integer first = spAdjust(code, i);
+                Integer second = spAdjust(code, i + 1);
+                if (first == null || second == null) return false;
+                remove(code, i, 2);
+                int sum = first + second;
+                if (sum > 0) {
+                    code.add(i, Line.instr("addu", "$sp", "$sp", "" + sum));
+                } else if (sum < 0) {
+                    code.add(i, Line.instr("subu", "$sp", "$sp", "" + -sum));
+                }
+                return true;
+            }
+        },
+        // sw R, x / lw Q, x
+        new Rule("store-load") {
+            boolean apply(List<Line> code, int i) {
+                if (i + 1 >= code.size()) return false;
+                Line store = code.get(i);
+                Line load = code.get(i + 1);
+                if (!store.is("sw", null, null) || !load.is("lw", null, null)
+                        || !store.args[1].equals(load.args[1])) {
+                    return false;
+                }
+                code.remove(i + 1);
+                if (!load.args[0].equals(store.args[0])) {
+                    code.add(i + 1, Line.instr("move", load.args[0], store.args[0]));
+                }
+                return true;
+            }
+        },
+        // move R, R
+        new Rule("self-move") {
+            boolean apply(List<Line> code, int i) {
+                Line line = code.get(i);
+                if (!line.is("move", null, null) || !line.args[0].equals(line.args[1])) {
+                    return false;
+                }
+                code.remove(i);
+                return true;
+            }
+        },
+        // j L directly followed by L:
+        new Rule("jump-next") {
+            boolean apply(List<Line> code, int i) {
+                Line jump = code.get(i);
+                if (!jump.is("j", (String) null)) return false;
+                for (int k = i + 1; k < code.size() && code.get(k).label != null; k++) {
+                    if (code.get(k).label.equals(jump.args[0])) {
+                        code.remove(i);
+                        return true;
+                    }
+                }
+                return false;
+            }
+        },
+        // instructions after j/jr that no label leads to
+        new Rule("unreachable") {
+            boolean apply(List<Line> code, int i) {
+                Line jump = code.get(i);
+                if (!jump.is("j", (String) null) && !jump.is("jr", (String) null)) {
+                    return false;
+                }
+                int k = i + 1;
+                while (k < code.size() && code.get(k).op != null) k++;
+                if (k == i + 1) return false;
+                remove(code, i + 1, k - i - 1);
+                return true;
+            }
+        },
+    };
+
+    // register pushed by genPush at position i, or null
+    static String pushed(List<Line> code, int i) {
+        if (i + 1 >= code.size()) return null;
+        Line store = code.get(i);
+        if (store.is("sw", null, "0($sp)") && code.get(i + 1).is("subu", "$sp", "$sp", "4")) {
+            return store.args[0];
+        }
+        return null;
+    }
+
+    // register popped by genPop at position i, or null
+    static String popped(List<Line> code, int i) {
+        if (i + 1 >= code.size()) return null;
+        Line load = code.get(i + 1);
+        if (code.get(i).is("addu", "$sp", "$sp", "4") && load.is("lw", null, "0($sp)")) {
+            return load.args[0];
+        }
+        return null;
+    }
+
+    // amount added to $sp by the instruction at position i, or null
+    static Integer spAdjust(List<Line> code, int i) {
+        if (i >= code.size()) return null;
+        Line line = code.get(i);
+        boolean add = line.is("addu", "$sp", "$sp", null);
+        if (!add && !line.is("subu", "$sp", "$sp", null)) return null;
+        try {
+            int n = Integer.parseInt(line.args[2]);
+            return add ? n : -n;
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    static void remove(List<Line> code, int i, int n) {
+        for (int k = 0; k < n; k++) code.remove(i);
+    }
+
+    // **********************************************************************
+    // optimize
+    //    given:  the generated lines
+    //    return: the lines after applying the rule table
+    // **********************************************************************
+    public static List<String> optimize(List<String> text) {
+        List<Line> code = new ArrayList<>();
+        for (String line : text) {
+            if (line.trim().length() > 0) code.add(new Line(line));
+        }
+        if (enabled) {
+            int i = 0;
+            while (i < code.size()) {
+                boolean changed = false;
+                for (Rule rule : RULES) {
+                    if (rule.apply(code, i)) {
+                        rule.hits++;
+                        changed = true;
+                        break;
+                    }
+                }
+                i = changed ? Math.max(0, i - WINDOW) : i + 1;
+            }
+        }
+        List<String> result = new ArrayList<>();
+        for (Line line : code) result.add(line.text);
+        return result;
+    }
+
+    // **********************************************************************
+    // printStats
+    //    write how often each rule matched
+    // **********************************************************************
+    public static void printStats(PrintStream out) {
+        StringBuilder sb = new StringBuilder("Peephole:");
+        for (Rule rule : RULES) {
+            sb.append(" " + rule.name + "=" + rule.hits);
+        }
+        out.println(sb.toString());
+    }
+}
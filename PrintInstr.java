@@ -0,0 +1,24 @@
+// **********************************************************************
+// PrintInstr
+//    print src
+// **********************************************************************
+class PrintInstr extends Instr {
+    public PrintInstr(int type, Operand src) {
+        myType = type;
+        srcs = new Operand[]{src};
+    }
+
+    public Instr copy() {
+        return new PrintInstr(myType, srcs[0]);
+    }
+
+    public int getType() {
+        return myType;
+    }
+
+    public String toString() {
+        return "print " + srcs[0];
+    }
+
+    private int myType;
+}
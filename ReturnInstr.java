@@ -0,0 +1,25 @@
+// **********************************************************************
+// ReturnInstr
+//    return [src]
+// **********************************************************************
+class ReturnInstr extends Instr {
+    public ReturnInstr(Operand src) {
+        srcs = src == null ? new Operand[0] : new Operand[]{src};
+    }
+
+    public Instr copy() {
+        return new ReturnInstr(getValue());
+    }
+
+    public Operand getValue() {
+        return srcs.length == 0 ? null : srcs[0];
+    }
+
+    public boolean isTerminator() {
+        return true;
+    }
+
+    public String toString() {
+        return "return" + (srcs.length == 0 ? "" : " " + srcs[0]);
+    }
+}
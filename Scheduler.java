@@ -0,0 +1,295 @@
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// **********************************************************************
+// Scheduler
+//
+// Output for MIPS32 cores with delayed branches, selected with the -delay
+// option of P5 (SPIM, the default, does not delay branches, and its code
+// is written unchanged). It runs after the peephole pass:
+//     - a load followed directly by the first use of its register is
+//       moved up past the instruction before it, or the use is moved down
+//       past the instruction after it, so the pipeline does not stall
+//     - every branch and jump gets a delay slot. It is filled with an
+//       instruction from before the branch in the same block that the
+//       branch does not depend on; a j or jal may instead take a copy of
+//       the first instruction at its target and jump past it. Slots that
+//       stay empty get a nop.
+// The code starts with .set noreorder, so that the assembler leaves the
+// slots alone. Only instructions the assembler turns into exactly one
+// machine instruction are put into a slot.
+// **********************************************************************
+public class Scheduler {
+
+    // set to true (P5 -delay) to write code for delayed branches
+    public static boolean enabled = false;
+
+    // how far back a slot is looked for
+    private static final int LOOKBACK = 8;
+
+    private static int loadHits = 0;
+    private static int beforeHits = 0;
+    private static int targetHits = 0;
+    private static int nops = 0;
+    private static int labelCounter = 0;
+
+    private static final Set<String> ALU = new HashSet<>(Arrays.asList(
+        "add", "addu", "addi", "addiu", "sub", "subu", "mul", "and", "andi",
+        "or", "ori", "xor", "xori", "nor", "slt", "slti", "sltu", "sltiu",
+        "sll", "sra", "srl"));
+    private static final Set<String> BRANCHES = new HashSet<>(Arrays.asList(
+        "beq", "bne", "blt", "bgt", "ble", "bge", "beqz", "bnez", "bltz",
+        "bgtz", "blez", "bgez", "j", "jr", "jal"));
+
+    // **********************************************************************
+    // schedule
+    //    given:  the lines after the peephole pass
+    //    return: the lines to write (the same lines unless enabled)
+    // **********************************************************************
+    public static List<String> schedule(List<String> text) {
+        if (!enabled) return text;
+        List<Peephole.Line> code = new ArrayList<>();
+        for (String line : text) code.add(new Peephole.Line(line));
+        spreadLoads(code);
+        fillSlots(code);
+        List<String> result = new ArrayList<>();
+        result.add("\t.set noreorder");
+        for (Peephole.Line line : code) result.add(line.text);
+        return result;
+    }
+
+    // move loads away from the first use of their register
+    private static void spreadLoads(List<Peephole.Line> code) {
+        for (int i = 0; i + 1 < code.size(); i++) {
+            Peephole.Line load = code.get(i);
+            Peephole.Line use = code.get(i + 1);
+            if (!"lw".equals(load.op) || !reads(use).contains(load.args[0])) continue;
+            if (i > 0 && movable(code.get(i - 1)) && independent(code.get(i - 1), load)) {
+                code.set(i, code.get(i - 1));
+                code.set(i - 1, load);
+                loadHits++;
+            } else if (i + 2 < code.size() && movable(use) && movable(code.get(i + 2))
+                    && independent(use, code.get(i + 2))
+                    && !reads(code.get(i + 2)).contains(load.args[0])) {
+                code.set(i + 1, code.get(i + 2));
+                code.set(i + 2, use);
+                loadHits++;
+            }
+        }
+    }
+
+    // give every branch and jump a delay slot
+    private static void fillSlots(List<Peephole.Line> code) {
+        for (int i = 0; i < code.size(); i++) {
+            Peephole.Line branch = code.get(i);
+            if (!isBranch(branch)) continue;
+            Peephole.Line slot = fromBefore(code, i);
+            if (slot != null) {
+                code.remove(slot);
+                i--;
+                beforeHits++;
+            } else if ((branch.is("j", (String) null) || branch.is("jal", (String) null))
+                    && (slot = fromTarget(code, branch)) != null) {
+                //the target may have been before the branch
+                i = code.indexOf(branch);
+                targetHits++;
+            } else {
+                slot = new Peephole.Line("\tnop");
+                nops++;
+            }
+            code.add(i + 1, slot);
+            i++;
+        }
+    }
+
+    // an instruction of the block before position i that can be moved
+    // into the slot of the branch there, or null
+    private static Peephole.Line fromBefore(List<Peephole.Line> code, int i) {
+        Peephole.Line branch = code.get(i);
+        List<Peephole.Line> between = new ArrayList<>();
+        between.add(branch);
+        for (int k = i - 1; k >= 0 && k >= i - LOOKBACK; k--) {
+            Peephole.Line line = code.get(k);
+            //a line right after a branch is that branch's slot
+            if (!movable(line) || (k > 0 && isBranch(code.get(k - 1)))) return null;
+            boolean free = slotSafe(line, branch);
+            for (Peephole.Line later : between) {
+                free = free && independent(line, later);
+            }
+            if (free) return line;
+            between.add(line);
+        }
+        return null;
+    }
+
+    // a copy of the first instruction at the target of a j or jal, which
+    // is then made to jump past it; null if it cannot go into the slot
+    private static Peephole.Line fromTarget(List<Peephole.Line> code, Peephole.Line jump) {
+        for (int k = 0; k + 1 < code.size(); k++) {
+            if (!jump.args[0].equals(code.get(k).label)) continue;
+            int at = k + 1;
+            while (at < code.size() && code.get(at).label != null) at++;
+            if (at >= code.size()) return null;
+            Peephole.Line first = code.get(at);
+            if (!movable(first) || !single(first)) return null;
+            String label = "_slot" + labelCounter++;
+            code.add(at + 1, new Peephole.Line(label + ":"));
+            jump.args[0] = label;
+            jump.text = Peephole.Line.instr(jump.op, label).text;
+            return new Peephole.Line(first.text);
+        }
+        return null;
+    }
+
+    // true if line, which the branch does not depend on, can be moved
+    // into its slot: it is one machine instruction and, for a jal (which
+    // sets $ra before the slot runs), does not read $ra
+    private static boolean slotSafe(Peephole.Line line, Peephole.Line branch) {
+        if (!single(line)) return false;
+        return !"jal".equals(branch.op) || !reads(line).contains("$ra");
+    }
+
+    // true if the assembler turns line into a single machine instruction
+    private static boolean single(Peephole.Line line) {
+        String op = line.op;
+        if (op.equals("move") || op.equals("mfhi") || op.equals("mflo")
+                || op.equals("mult") || op.equals("nop")) {
+            return true;
+        }
+        if (op.equals("li")) return fits(line.args[1], -32768, 65535);
+        if (op.equals("lw") || op.equals("sw")) return base(line.args[1]) != null;
+        if (!ALU.contains(op) || line.args.length != 3) return false;
+        String b = line.args[2];
+        if (b.startsWith("$")) return true;
+        if (op.equals("mul")) return false;
+        if (op.equals("sll") || op.equals("sra") || op.equals("srl")) return fits(b, 0, 31);
+        if (op.equals("andi") || op.equals("ori") || op.equals("xori")
+                || op.equals("and") || op.equals("or") || op.equals("xor")) {
+            return fits(b, 0, 65535);
+        }
+        //sub takes the negated immediate
+        return fits(b, -32767, 32767);
+    }
+
+    private static boolean fits(String value, int min, int max) {
+        try {
+            int n = Integer.parseInt(value);
+            return n >= min && n <= max;
+        } catch (NumberFormatException ex) {
+            return false;
+        }
+    }
+
+    // true for instructions whose registers and memory accesses are known
+    private static boolean movable(Peephole.Line line) {
+        if (line.op == null || isBranch(line)) return false;
+        return single(line) || ALU.contains(line.op) || line.op.equals("li")
+                || line.op.equals("la") || line.op.equals("lw") || line.op.equals("sw")
+                || line.op.equals("div");
+    }
+
+    private static boolean isBranch(Peephole.Line line) {
+        return line.op != null && BRANCHES.contains(line.op);
+    }
+
+    // true if a and b (a first) can be swapped
+    private static boolean independent(Peephole.Line a, Peephole.Line b) {
+        for (String reg : writes(a)) {
+            if (reads(b).contains(reg) || writes(b).contains(reg)) return false;
+        }
+        for (String reg : writes(b)) {
+            if (reads(a).contains(reg)) return false;
+        }
+        boolean aMem = a.is("lw", null, null) || a.is("sw", null, null);
+        boolean bMem = b.is("lw", null, null) || b.is("sw", null, null);
+        if (aMem && bMem && ("sw".equals(a.op) || "sw".equals(b.op))) {
+            return !mayAlias(a.args[1], b.args[1]);
+        }
+        return true;
+    }
+
+    // false if the two addresses are known to be different words: labels
+    // of different globals, a global and the stack, or different offsets
+    // from the same register
+    private static boolean mayAlias(String x, String y) {
+        String bx = base(x);
+        String by = base(y);
+        if (bx == null && by == null) return x.equals(y);
+        if (bx == null || by == null) {
+            String b = bx == null ? by : bx;
+            return !b.equals("$sp") && !b.equals("$fp");
+        }
+        if (!bx.equals(by)) return true;
+        return x.substring(0, x.indexOf('(')).equals(y.substring(0, y.indexOf('(')));
+    }
+
+    // base register of an address N($r), or null
+    private static String base(String address) {
+        int open = address.indexOf('(');
+        if (open < 0 || !address.endsWith(")")) return null;
+        if (open > 0 && !fits(address.substring(0, open), -32768, 32767)) return null;
+        return address.substring(open + 1, address.length() - 1);
+    }
+
+    // registers an instruction reads ($hi and $lo stand for hi and lo)
+    private static Set<String> reads(Peephole.Line line) {
+        Set<String> regs = new HashSet<>();
+        String[] args = line.args;
+        int first = 1;
+        if (line.op == null) return regs;
+        switch (line.op) {
+            case "sw":
+            case "mult":
+            case "jr":
+                first = 0;
+                break;
+            case "mfhi":
+                regs.add("$hi");
+                break;
+            case "mflo":
+                regs.add("$lo");
+                break;
+            case "div":
+                if (args.length == 2) first = 0;
+                break;
+            default:
+                if (isBranch(line)) first = 0;
+        }
+        for (int k = first; k < args.length; k++) {
+            String reg = args[k].startsWith("$") ? args[k] : base(args[k]);
+            if (reg != null && !reg.equals("$0") && !reg.equals("$zero")) regs.add(reg);
+        }
+        return regs;
+    }
+
+    // registers an instruction writes
+    private static Set<String> writes(Peephole.Line line) {
+        Set<String> regs = new HashSet<>();
+        if (line.op == null) return regs;
+        if (line.op.equals("mult") || line.op.equals("div")) {
+            regs.add("$hi");
+            regs.add("$lo");
+            if (line.op.equals("mult") || line.args.length == 2) return regs;
+        }
+        if (line.op.equals("jal")) {
+            regs.add("$ra");
+        } else if (!line.op.equals("sw") && !isBranch(line) && line.args.length > 0) {
+            regs.add(line.args[0]);
+        }
+        return regs;
+    }
+
+    // **********************************************************************
+    // printStats
+    //    write how many loads were moved and how the slots were filled
+    // **********************************************************************
+    public static void printStats(PrintStream out) {
+        if (!enabled) return;
+        out.println("Scheduler: loads=" + loadHits + " slots-before=" + beforeHits
+                + " slots-target=" + targetHits + " nops=" + nops);
+    }
+}
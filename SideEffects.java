@@ -0,0 +1,116 @@
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+// **********************************************************************
+// SideEffects
+//
+// What a call of each method of a program can do besides computing its
+// result: the globals it may read and write and whether it may print,
+// including everything done by the methods it calls (iterated until
+// stable, for recursion). A method surely returns if it has no loop, no
+// division that may fail and only calls methods that surely return (so
+// none that recurse).
+// **********************************************************************
+class SideEffects {
+
+    SideEffects(IrProgram program) {
+        for (IrMethod method : program.getMethods()) {
+            myReads.put(method.getName(), new HashSet<>());
+            myWrites.put(method.getName(), new HashSet<>());
+        }
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (IrMethod method : program.getMethods()) {
+                String name = method.getName();
+                Set<SymbolTable.Sym> reads = myReads.get(name);
+                Set<SymbolTable.Sym> writes = myWrites.get(name);
+                int before = reads.size() + writes.size();
+                boolean prints = myPrints.contains(name);
+                for (BasicBlock block : method.getBlocks()) {
+                    for (Instr instr : block.getInstrs()) {
+                        for (Operand src : instr.getSrcs()) {
+                            if (src instanceof Var && ((Var) src).isGlobal()) {
+                                reads.add(((Var) src).getSym());
+                            }
+                        }
+                        Operand dst = instr.getDst();
+                        if (dst instanceof Var && ((Var) dst).isGlobal()) {
+                            writes.add(((Var) dst).getSym());
+                        }
+                        if (instr instanceof PrintInstr) {
+                            myPrints.add(name);
+                        } else if (instr instanceof CallInstr) {
+                            String callee = ((CallInstr) instr).getName();
+                            reads.addAll(myReads.get(callee));
+                            writes.addAll(myWrites.get(callee));
+                            if (myPrints.contains(callee)) myPrints.add(name);
+                        }
+                    }
+                }
+                changed |= reads.size() + writes.size() != before
+                        || prints != myPrints.contains(name);
+            }
+        }
+
+        //grown from no method, so that recursion never gets in
+        Set<IrMethod> loopFree = new HashSet<>();
+        for (IrMethod method : program.getMethods()) {
+            if (new Loops(method).getLoops().isEmpty()) loopFree.add(method);
+        }
+        changed = true;
+        while (changed) {
+            changed = false;
+            for (IrMethod method : loopFree) {
+                if (!myReturns.contains(method.getName()) && surelyReturns(method)) {
+                    myReturns.add(method.getName());
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    private boolean surelyReturns(IrMethod method) {
+        for (BasicBlock block : method.getBlocks()) {
+            for (Instr instr : block.getInstrs()) {
+                if (instr instanceof CallInstr) {
+                    if (!myReturns.contains(((CallInstr) instr).getName())) return false;
+                } else if (instr instanceof BinInstr && ((BinInstr) instr).getOp() == Op.DIV) {
+                    Operand divisor = instr.getSrcs()[1];
+                    if (!(divisor instanceof Const) || ((Const) divisor).getValue() == 0) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    // globals a call of the method may read
+    public Set<SymbolTable.Sym> getReads(String name) {
+        return myReads.get(name);
+    }
+
+    // globals a call of the method may change
+    public Set<SymbolTable.Sym> getWrites(String name) {
+        return myWrites.get(name);
+    }
+
+    // true if a call of the method changes nothing the rest of the
+    // program can see (whether it returns at all is not considered)
+    public boolean isPure(String name) {
+        return myWrites.get(name).isEmpty() && !myPrints.contains(name);
+    }
+
+    // true if a call of the method cannot fail or run forever
+    public boolean surelyReturns(String name) {
+        return myReturns.contains(name);
+    }
+
+    private Map<String, Set<SymbolTable.Sym>> myReads = new HashMap<>();
+    private Map<String, Set<SymbolTable.Sym>> myWrites = new HashMap<>();
+    private Set<String> myPrints = new HashSet<>();
+    private Set<String> myReturns = new HashSet<>();
+}
@@ -0,0 +1,59 @@
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// **********************************************************************
+// StaticInit
+//
+// Constants that main stores into globals before anything else can see
+// them become the initial values of the globals in the data segment:
+//     main() { g = 5; ... }   =>   _global_g: .word 5
+// Only the start of the first block of main is looked at, up to the
+// first call. Nothing is done if main can be called again, or if that
+// block can be entered again (tail recursion of main, see TailCalls).
+// **********************************************************************
+class StaticInit extends Optimizer.Pass {
+
+    StaticInit() {
+        super("static-init");
+    }
+
+    boolean run(IrProgram program) {
+        IrMethod main = null;
+        for (IrMethod method : program.getMethods()) {
+            if (method.getName().equals("main")) main = method;
+            for (BasicBlock block : method.getBlocks()) {
+                for (Instr instr : block.getInstrs()) {
+                    if (instr instanceof CallInstr
+                            && ((CallInstr) instr).getName().equals("main")) {
+                        return false;
+                    }
+                }
+            }
+        }
+        if (main == null) return false;
+        BasicBlock first = main.getBlocks().get(0);
+        if (!main.getPredecessors().get(first).isEmpty()) return false;
+
+        boolean changed = false;
+        //globals read or written since main started
+        Set<Operand> touched = new HashSet<>();
+        List<Instr> instrs = first.getInstrs();
+        for (int i = 0; i < instrs.size(); i++) {
+            Instr instr = instrs.get(i);
+            if (instr instanceof CallInstr || instr.isTerminator()) break;
+            Operand dst = instr.getDst();
+            if (instr instanceof MoveInstr && dst instanceof Var && ((Var) dst).isGlobal()
+                    && instr.getSrcs()[0] instanceof Const && !touched.contains(dst)) {
+                program.setInitialValue(((Var) dst).getSym(), ((Const) instr.getSrcs()[0]).getValue());
+                instrs.remove(i--);
+                hits++;
+                changed = true;
+                continue;
+            }
+            for (Operand src : instr.getSrcs()) touched.add(src);
+            if (dst != null) touched.add(dst);
+        }
+        return changed;
+    }
+}
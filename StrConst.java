@@ -0,0 +1,27 @@
+// **********************************************************************
+// StrConst
+//    string literal
+// **********************************************************************
+class StrConst extends Operand {
+    public StrConst(String value) {
+        myValue = value;
+    }
+
+    public String getValue() {
+        return myValue;
+    }
+
+    public boolean equals(Object o) {
+        return o instanceof StrConst && ((StrConst) o).myValue.equals(myValue);
+    }
+
+    public int hashCode() {
+        return myValue.hashCode();
+    }
+
+    public String toString() {
+        return "\"" + myValue + "\"";
+    }
+
+    private String myValue;
+}
@@ -0,0 +1,212 @@
+import java.util.ArrayList;
+import java.util.List;
+
+// **********************************************************************
+// StrengthReduction
+//
+// Replaces operations by cheaper ones that compute the same value:
+//     x ** n   (constant 2 <= n <= MAX_POW_INLINE) becomes a chain of
+//              multiplications (square and multiply from the highest
+//              bit of n), instead of a call of _pow
+//     x * c    becomes a shift, or two shifts (one for 2^k +- 1) and an
+//              add or subtract, if c has at most two bits set (or is
+//              2^k - 1); negative c negates the result
+//     x / c    becomes an arithmetic shift for c = 2^k (a negative x is
+//              rounded towards zero by adding 2^k - 1 first), and for
+//              any other c a multiplication by a "magic number" of which
+//              only the upper word is used (mult/mfhi), see magic
+// The shifts, adds and subtracts wrap around like the multiplication
+// they replace (see Op.eval), so a product that overflows 32 bits comes
+// out the same either way.
+// **********************************************************************
+class StrengthReduction extends Optimizer.MethodPass {
+
+    // largest constant exponent that is expanded inline
+    static int MAX_POW_INLINE = 16;
+
+    StrengthReduction() {
+        super("strength-reduction");
+    }
+
+    boolean run(IrMethod method) {
+        boolean changed = false;
+        for (BasicBlock block : method.getBlocks()) {
+            List<Instr> instrs = block.getInstrs();
+            for (int i = 0; i < instrs.size(); i++) {
+                List<Instr> replacement = reduce(method, instrs.get(i));
+                if (replacement == null) continue;
+                instrs.remove(i);
+                instrs.addAll(i, replacement);
+                i += replacement.size() - 1;
+                hits++;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    // the instructions replacing instr, or null to keep it
+    private List<Instr> reduce(IrMethod method, Instr instr) {
+        if (!(instr instanceof BinInstr)) return null;
+        BinInstr bin = (BinInstr) instr;
+        Operand[] srcs = bin.getSrcs();
+        if (bin.getOp() == Op.POW && srcs[1] instanceof Const) {
+            int n = ((Const) srcs[1]).getValue();
+            if (n >= 2 && n <= MAX_POW_INLINE) {
+                return expandPow(method, bin.getDst(), srcs[0], n);
+            }
+        }
+        if (bin.getOp() == Op.MUL && srcs[0] instanceof Const && !(srcs[1] instanceof Const)) {
+            return reduceMul(method, bin.getDst(), srcs[1], ((Const) srcs[0]).getValue());
+        }
+        if (bin.getOp() == Op.MUL && srcs[1] instanceof Const && !(srcs[0] instanceof Const)) {
+            return reduceMul(method, bin.getDst(), srcs[0], ((Const) srcs[1]).getValue());
+        }
+        if (bin.getOp() == Op.DIV && srcs[1] instanceof Const && !(srcs[0] instanceof Const)) {
+            return reduceDiv(method, bin.getDst(), srcs[0], ((Const) srcs[1]).getValue());
+        }
+        return null;
+    }
+
+    // dst = x * c with shifts and an add or subtract, or null to keep the
+    // multiplication
+    private List<Instr> reduceMul(IrMethod method, Operand dst, Operand x, int c) {
+        //(Math.abs leaves Integer.MIN_VALUE negative, it is not reduced)
+        int n = Math.abs(c);
+        if (n < 2) return null;
+        List<Instr> code = new ArrayList<>();
+        Operand result;
+        int low = Integer.numberOfTrailingZeros(n);
+        int rest = n - (1 << low);
+        if (rest == 0) {
+            result = shift(method, code, Op.SHL, x, low);
+        } else if (Integer.bitCount(rest) == 1) {
+            //2^a + 2^b (with b = 0: x << a + x)
+            x = once(method, code, x);
+            Operand high = shift(method, code, Op.SHL, x, Integer.numberOfTrailingZeros(rest));
+            result = binary(method, code, Op.ADD, high, low == 0 ? x : shift(method, code, Op.SHL, x, low));
+        } else if (Integer.bitCount(n + 1) == 1 && n + 1 > 0) {
+            //2^k - 1
+            x = once(method, code, x);
+            Operand high = shift(method, code, Op.SHL, x, Integer.numberOfTrailingZeros(n + 1));
+            result = binary(method, code, Op.SUB, high, x);
+        } else {
+            return null;
+        }
+        if (c < 0) {
+            code.add(new UnInstr(Op.NEG, method.newTemp(Types.IntType), result));
+        }
+        code.get(code.size() - 1).setDst(dst);
+        return code;
+    }
+
+    // dst = x / c without div (the quotient is rounded towards zero, like
+    // div does), or null to keep the division
+    private List<Instr> reduceDiv(IrMethod method, Operand dst, Operand x, int c) {
+        int n = Math.abs(c);
+        if (n < 2) return null;
+        List<Instr> code = new ArrayList<>();
+        x = once(method, code, x);
+        Operand result;
+        if (Integer.bitCount(n) == 1) {
+            int k = Integer.numberOfTrailingZeros(n);
+            //2^k - 1 if x is negative, 0 otherwise
+            Operand sign = k == 1 ? x : shift(method, code, Op.SHR, x, 31);
+            Operand bias = shift(method, code, Op.SHRU, sign, 32 - k);
+            Operand sum = binary(method, code, Op.ADD, x, bias);
+            result = shift(method, code, Op.SHR, sum, k);
+        } else {
+            int[] m = magic(n);
+            Operand q = binary(method, code, Op.MULHI, x, new Const(m[0]));
+            if (m[0] < 0) q = binary(method, code, Op.ADD, q, x);
+            if (m[1] > 0) q = shift(method, code, Op.SHR, q, m[1]);
+            //plus one for a negative x
+            Operand sign = shift(method, code, Op.SHRU, x, 31);
+            result = binary(method, code, Op.ADD, q, sign);
+        }
+        if (c < 0) {
+            code.add(new UnInstr(Op.NEG, method.newTemp(Types.IntType), result));
+        }
+        code.get(code.size() - 1).setDst(dst);
+        return code;
+    }
+
+    // **********************************************************************
+    // magic
+    //    multiplier m and shift s for signed division by d (2 <= d,
+    //    not a power of two): x / d = ((x * m) >> (32 + s)) + (x < 0),
+    //    where x is added to the upper word if m is negative
+    //    (Hacker's Delight, 10-1)
+    // **********************************************************************
+    static int[] magic(int d) {
+        final long two31 = 1L << 31;
+        long anc = two31 - 1 - two31 % d;
+        int p = 31;
+        long q1 = two31 / anc;
+        long r1 = two31 - q1 * anc;
+        long q2 = two31 / d;
+        long r2 = two31 - q2 * d;
+        long delta;
+        do {
+            p++;
+            q1 *= 2;
+            r1 *= 2;
+            if (r1 >= anc) {
+                q1++;
+                r1 -= anc;
+            }
+            q2 *= 2;
+            r2 *= 2;
+            if (r2 >= d) {
+                q2++;
+                r2 -= d;
+            }
+            delta = d - r2;
+        } while (q1 < delta || (q1 == delta && r1 == 0));
+        return new int[]{(int) (q2 + 1), p - 32};
+    }
+
+    // x, copied into a temp first if it is a variable (so that it is read
+    // only once)
+    private static Operand once(IrMethod method, List<Instr> code, Operand x) {
+        if (x instanceof Temp) return x;
+        Temp temp = method.newTemp(Types.IntType);
+        code.add(new MoveInstr(temp, x));
+        return temp;
+    }
+
+    private static Operand shift(IrMethod method, List<Instr> code, int op, Operand x, int by) {
+        return binary(method, code, op, x, new Const(by));
+    }
+
+    private static Operand binary(IrMethod method, List<Instr> code, int op, Operand a, Operand b) {
+        Temp temp = method.newTemp(Types.IntType);
+        code.add(new BinInstr(op, temp, a, b));
+        return temp;
+    }
+
+    // dst = base ** n as multiplications
+    private List<Instr> expandPow(IrMethod method, Operand dst, Operand base, int n) {
+        List<Instr> code = new ArrayList<>();
+        if (!(base instanceof Temp)) {
+            //read a variable only once
+            Temp temp = method.newTemp(Types.IntType);
+            code.add(new MoveInstr(temp, base));
+            base = temp;
+        }
+        Operand result = base;
+        int bit = Integer.highestOneBit(n) >> 1;
+        for (; bit > 0; bit >>= 1) {
+            Temp square = method.newTemp(Types.IntType);
+            code.add(new BinInstr(Op.MUL, square, result, result));
+            result = square;
+            if ((n & bit) != 0) {
+                Temp product = method.newTemp(Types.IntType);
+                code.add(new BinInstr(Op.MUL, product, result, base));
+                result = product;
+            }
+        }
+        code.get(code.size() - 1).setDst(dst);
+        return code;
+    }
+}
@@ -0,0 +1,70 @@
+import java.util.List;
+
+// **********************************************************************
+// TailCalls
+//
+// A method that calls itself and returns right away (what it returns is
+// the result of the call, or nothing) does not need a new frame: the
+// arguments are assigned to the parameters and control goes back to the
+// first block.
+//     t = call f(a - 1, b * a); return t
+//  => t1 = a - 1 ... a = t1; b = t2; jump <first block of f>
+// Recursion of that kind then runs in constant stack space. Tail calls
+// of other methods are turned into jumps by Backend.
+// **********************************************************************
+class TailCalls extends Optimizer.MethodPass {
+
+    TailCalls() {
+        super("tail-calls");
+    }
+
+    boolean run(IrMethod method) {
+        boolean changed = false;
+        List<BasicBlock> blocks = method.getBlocks();
+        for (BasicBlock block : blocks) {
+            List<Instr> instrs = block.getInstrs();
+            for (int i = 0; i < instrs.size(); i++) {
+                Instr instr = instrs.get(i);
+                if (!(instr instanceof CallInstr)
+                        || !((CallInstr) instr).getName().equals(method.getName())
+                        || !returns(block, i + 1, instr.getDst(), blocks.size())) {
+                    continue;
+                }
+                Operand[] args = instr.getSrcs();
+                List<SymbolTable.Sym> params = method.getParams();
+                instrs.subList(i, instrs.size()).clear();
+                //every argument is evaluated before a parameter changes
+                for (int j = 0; j < args.length; j++) {
+                    if (args[j] instanceof Var) {
+                        Temp temp = method.newTemp(((Var) args[j]).getSym().getMyType());
+                        instrs.add(new MoveInstr(temp, args[j]));
+                        args[j] = temp;
+                    }
+                }
+                for (int j = 0; j < args.length; j++) {
+                    instrs.add(new MoveInstr(new Var(params.get(j)), args[j]));
+                }
+                instrs.add(new JumpInstr(blocks.get(0)));
+                hits++;
+                changed = true;
+                break;
+            }
+        }
+        return changed;
+    }
+
+    // true if the code from instruction index of block on returns value
+    // (or nothing) without doing anything else; steps is a bound on the
+    // number of jumps followed
+    private static boolean returns(BasicBlock block, int index, Operand value, int steps) {
+        Instr instr = block.getInstrs().get(index);
+        if (instr instanceof ReturnInstr) {
+            Operand result = ((ReturnInstr) instr).getValue();
+            return result == null || result.equals(value);
+        }
+        if (instr instanceof JumpInstr && steps > 0) {
+            return returns(((JumpInstr) instr).getTarget(), 0, value, steps - 1);
+        }
+        return false;
+    }
+}
@@ -0,0 +1,29 @@
+// **********************************************************************
+// Temp
+//    value computed by the compiler (typed)
+// **********************************************************************
+class Temp extends Operand {
+    public Temp(int num, int type) {
+        myNum = num;
+        myType = type;
+    }
+
+    public int getNum() {
+        return myNum;
+    }
+
+    public int getType() {
+        return myType;
+    }
+
+    public boolean isLocal() {
+        return true;
+    }
+
+    public String toString() {
+        return "t" + myNum;
+    }
+
+    private int myNum;
+    private int myType;
+}
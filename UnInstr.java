@@ -0,0 +1,25 @@
+// **********************************************************************
+// UnInstr
+//    dst = op src
+// **********************************************************************
+class UnInstr extends Instr {
+    public UnInstr(int op, Operand d, Operand src) {
+        myOp = op;
+        dst = d;
+        srcs = new Operand[]{src};
+    }
+
+    public Instr copy() {
+        return new UnInstr(myOp, dst, srcs[0]);
+    }
+
+    public int getOp() {
+        return myOp;
+    }
+
+    public String toString() {
+        return dst + " = " + Op.ToString(myOp) + srcs[0];
+    }
+
+    private int myOp;
+}
@@ -0,0 +1,122 @@
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// **********************************************************************
+// ValueNumbering
+//
+// Local value numbering: in each block, operands that hold the same value
+// get the same number (constants by their value, a copy the number of
+// its source, a computation the number of the operator and the numbers
+// of its operands). A computation whose value is already held by a temp
+// or local becomes a copy of it, and a global whose value is still in a
+// temp or local is read from there:
+//     t1 = a * b; x = t1 + g; t2 = a * b; y = t2 - g
+//  => t1 = a * b; x = t1 + g; t2 = t1; y = t2 - g
+// An assignment gives its target a new number, so values held before
+// are no longer found there. A call gives a new number to every global
+// the callee may change (see SideEffects).
+// **********************************************************************
+class ValueNumbering extends Optimizer.Pass {
+
+    ValueNumbering() {
+        super("value-numbering");
+    }
+
+    boolean run(IrProgram program) {
+        SideEffects effects = new SideEffects(program);
+        boolean changed = false;
+        for (IrMethod method : program.getMethods()) {
+            for (BasicBlock block : method.getBlocks()) {
+                changed |= number(block, effects);
+            }
+        }
+        return changed;
+    }
+
+    private boolean number(BasicBlock block, SideEffects effects) {
+        myNumbers = new HashMap<>();
+        myHolders = new HashMap<>();
+        Map<String, Integer> values = new HashMap<>();
+        boolean changed = false;
+        List<Instr> instrs = block.getInstrs();
+        for (int i = 0; i < instrs.size(); i++) {
+            Instr instr = instrs.get(i);
+            Operand[] srcs = instr.getSrcs();
+            for (int j = 0; j < srcs.length; j++) {
+                Operand holder = srcs[j] instanceof Var && ((Var) srcs[j]).isGlobal()
+                        ? holder(number(srcs[j], values)) : null;
+                if (holder != null) {
+                    instr.setSrc(j, holder);
+                    hits++;
+                    changed = true;
+                }
+            }
+            Operand dst = instr.getDst();
+            if (instr instanceof MoveInstr) {
+                assign(dst, number(srcs[0], values));
+            } else if (instr instanceof BinInstr || instr instanceof UnInstr) {
+                int op = instr instanceof BinInstr ? ((BinInstr) instr).getOp() : ((UnInstr) instr).getOp();
+                StringBuilder key = new StringBuilder(op + ":");
+                int a = number(srcs[0], values);
+                int b = srcs.length > 1 ? number(srcs[1], values) : -1;
+                if (b >= 0 && b < a && commutes(op)) {
+                    key.append(b + ":" + a);
+                } else {
+                    key.append(a + ":" + b);
+                }
+                Integer value = values.get(key.toString());
+                Operand holder = value == null ? null : holder(value);
+                if (holder != null) {
+                    instrs.set(i, new MoveInstr(dst, holder));
+                    hits++;
+                    changed = true;
+                } else if (value == null) {
+                    value = myCount++;
+                    values.put(key.toString(), value);
+                }
+                assign(dst, value);
+            } else if (instr instanceof CallInstr) {
+                for (SymbolTable.Sym sym : effects.getWrites(((CallInstr) instr).getName())) {
+                    myNumbers.put(new Var(sym), myCount++);
+                }
+                if (dst != null) assign(dst, myCount++);
+            }
+        }
+        return changed;
+    }
+
+    // the number of the value of o; constants are numbered by value,
+    // other operands get a new number when they are first seen
+    private int number(Operand o, Map<String, Integer> values) {
+        if (o instanceof Const || o instanceof StrConst) {
+            return values.computeIfAbsent(o.getClass().getName() + o, k -> myCount++);
+        }
+        return myNumbers.computeIfAbsent(o, k -> myCount++);
+    }
+
+    // o now holds the value with the given number
+    private void assign(Operand o, int value) {
+        myNumbers.put(o, value);
+        if (o.isLocal() && holder(value) == null) {
+            myHolders.put(value, o);
+        }
+    }
+
+    // a temp or local that still holds the value with the given number
+    private Operand holder(int value) {
+        Operand holder = myHolders.get(value);
+        return holder != null && myNumbers.get(holder) == value ? holder : null;
+    }
+
+    private static boolean commutes(int op) {
+        return op == Op.ADD || op == Op.MUL || op == Op.AND || op == Op.OR
+                || op == Op.EQ || op == Op.NE || op == Op.MULHI;
+    }
+
+    // numbers of the operands in the current block, a temp or local
+    // holding each value, and the next free number
+    private Map<Operand, Integer> myNumbers;
+    private Map<Integer, Operand> myHolders;
+    private int myCount = 0;
+}
@@ -0,0 +1,35 @@
+// **********************************************************************
+// Var
+//    local variable, parameter or global
+// **********************************************************************
+class Var extends Operand {
+    public Var(SymbolTable.Sym sym) {
+        mySym = sym;
+    }
+
+    public SymbolTable.Sym getSym() {
+        return mySym;
+    }
+
+    public boolean isGlobal() {
+        return mySym.isGlobal();
+    }
+
+    public boolean isLocal() {
+        return !isGlobal();
+    }
+
+    public boolean equals(Object o) {
+        return o instanceof Var && ((Var) o).mySym == mySym;
+    }
+
+    public int hashCode() {
+        return mySym.hashCode();
+    }
+
+    public String toString() {
+        return mySym.name();
+    }
+
+    private SymbolTable.Sym mySym;
+}
@@ -102,8 +102,6 @@ abstract class ASTnode {
     // every subclass must provide an decompile operation
     abstract public void decompile(PrintWriter p, int indent);
 
-    abstract public void codeGen();
-
     // this method can be used by the decompile methods to do indenting
     protected void doIndent(PrintWriter p, int indent) {
         for (int k=0; k<indent; k++) p.print(" ");
@@ -152,41 +150,16 @@ class ProgramNode extends ASTnode {
     }
 
 
-    public void codeGen(){
-        Codegen.dataSegment();
-        Codegen.generateLabeled("_true", ".asciiz\t", "TrueLabel", "\"true\"");
-        Codegen.generateLabeled("_false", ".asciiz\t", "FalseLabel", "\"false\"");
-        Codegen.generateLabeled("_newLine", ".asciiz\t", "NewLine", "\"\\n\"");
-
-        Codegen.textSegment();
-        //Print
-
-        Codegen.genLabel("_printBool");
-        Codegen.genPop("$t0");
-        Codegen.generate("beq","$t0","0", "_printFalse");
-        //Codegen.generate("beq","$t0","-1", "_printTrue");TODO alles ausser 0 wird Moment als true gewertet
-        Codegen.generate("la","$t0","_true");
-        Codegen.genPush("$t0");
-        Codegen.generate("j", "_printTrue");
-        Codegen.genLabel("_printFalse");
-        Codegen.generate("la","$t0","_false");
-        Codegen.genPush("$t0");
-        Codegen.genLabel("_printTrue");
-        Codegen.generate("jr $ra");
-        //beq
-        //falsePath -->j False
-        //trueLabel
-        //TruePath
-        //FalseLabel
-        //Print end
-
-        Codegen.genLabel("main");
-        Codegen.genLabel(myId.getName());
-        Codegen.generate("move","$s1", Codegen.SP);
-        myClassBody.codeGen();
-        Codegen.generate("move",Codegen.SP,"$s1");
-        Codegen.generate("li", "$v0", 10);
-        Codegen.generate("syscall");
+    public IrProgram lower(){
+        IrProgram program = new IrProgram(myId.getName());
+        myClassBody.lower(program);
+        return program;
+    }
+
+    public void codeGen(PrintWriter out){
+        IrProgram program = lower();
+        Optimizer.optimize(program);
+        Backend.genProgram(program, out);
     }
     // 2 kids
     private IdNode myId;
@@ -212,8 +185,8 @@ class ClassBodyNode extends ASTnode {
         myDeclList.checkType();
     }
 
-    public void codeGen(){
-        myDeclList.codeGen();
+    public void lower(IrProgram program){
+        myDeclList.lower(program);
     }
     // 1 kid
     private DeclListNode myDeclList;
@@ -259,13 +232,13 @@ class DeclListNode extends ASTnode {
             System.exit(-1);
         }
     }
-    public void codeGen(){
+    public void lower(IrProgram program){
         try {
             for (myDecls.start(); myDecls.isCurrent(); myDecls.advance()) {
-                ((DeclNode)myDecls.getCurrent()).codeGen();
+                ((DeclNode)myDecls.getCurrent()).lower(program);
             }
         } catch (NoCurrentException ex) {
-            System.err.println("unexpected NoCurrentException in DeclListNode.print");
+            System.err.println("unexpected NoCurrentException in DeclListNode.lower");
             System.exit(-1);
         }
     }
@@ -334,14 +307,14 @@ class FormalsListNode extends ASTnode {
         }
     }
 
-    public void codeGen(){
+    public void lower(IrBuilder b){
         try {
 
             for (myFormals.start(); myFormals.isCurrent(); myFormals.advance()) { // myFormals.advance()
-                ((FormalDeclNode)myFormals.getCurrent()).codeGen();
+                ((FormalDeclNode)myFormals.getCurrent()).lower(b);
             }
         } catch (NoCurrentException ex) {
-            System.err.println("unexpected NoCurrentException in FormalsListNode.codeGen");
+            System.err.println("unexpected NoCurrentException in FormalsListNode.lower");
             System.exit(-1);
         }
     }
@@ -375,9 +348,8 @@ class MethodBodyNode extends ASTnode {
         return myStmtList.checkType(expected);
     }
 
-    public void codeGen(){
-        myDeclList.codeGen();
-        myStmtList.codeGen();
+    public void lower(IrBuilder b){
+        myStmtList.lower(b);
     }
 
     // 2 kids
@@ -510,13 +482,13 @@ class StmtListNode extends ASTnode {
         return returnVal;
     }
 
-    public void codeGen(){
+    public void lower(IrBuilder b){
         try {
             for (myStmts.start(); myStmts.isCurrent(); myStmts.advance()) {
-                ((StmtNode)myStmts.getCurrent()).codeGen();
+                ((StmtNode)myStmts.getCurrent()).lower(b);
             }
         } catch (NoCurrentException ex) {
-            System.err.println("unexpected NoCurrentException in StmtListNode.decompile");
+            System.err.println("unexpected NoCurrentException in StmtListNode.lower");
             System.exit(-1);
         }
     }
@@ -565,17 +537,6 @@ class VarDeclListNode extends ASTnode {
     }
 
 
-    public void codeGen(){
-        try {
-            for (myVarDecl.start(); myVarDecl.isCurrent(); myVarDecl.advance()) {
-                ((VarDeclNode) myVarDecl.getCurrent()).codeGen();
-            }
-        } catch (NoCurrentException ex) {
-            System.err.println("unexpected NoCurrentException in VarDeclListNode.checkType");
-            System.exit(-1);
-        }
-    }
-
     private Sequence myVarDecl;
 }
 
@@ -650,25 +611,28 @@ class ExpListNode extends ASTnode {
         return returnVal;
     }
 
-    public void codeGen(){
+    public Operand[] lower(IrBuilder b){
+        ArrayList<ExpNode> exps = new ArrayList<>();
         try {
-            int i = 0;
-            int offset;
             for (myExps.start(); myExps.isCurrent();myExps.advance()){
-                ((ExpNode)myExps.getCurrent()).codeGen();
-                //offset von fp berechnen = -8 + -4i
-                //sw
-                offset = 4*i + 8;
-                //Codegen.generate("li","$t0", offset);
-                Codegen.genPop("$t1");
-                Codegen.generate("subu","$t0", Codegen.SP, offset);
-                Codegen.generateIndexed("sw", "$t1","$t0",0);
-                i++;
+                exps.add((ExpNode)myExps.getCurrent());
             }
         } catch (NoCurrentException ex) {
-            System.err.println("unexpected NoCurrentException in FormalsListNode.print");
+            System.err.println("unexpected NoCurrentException in ExpListNode.lower");
             System.exit(-1);
         }
+        Operand[] args = new Operand[exps.size()];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = exps.get(i).lower(b);
+            //a call in a later argument may change a global
+            for (int k = i + 1; k < args.length; k++) {
+                if (exps.get(k).hasCall()) {
+                    args[i] = b.freeze(args[i]);
+                    break;
+                }
+            }
+        }
+        return args;
     }
 
     // sequence of kids (ExpNodes)
@@ -683,7 +647,10 @@ abstract class DeclNode extends ASTnode
 {
     public abstract void checkName(SymbolTable st, TablePrinter tp);
     public abstract void checkType(int offset);
-    public static boolean isFirst = false;
+
+    // add the declaration to the program, if it is a global one
+    public void lower(IrProgram program){
+    }
 }
 
 class FieldDeclNode extends DeclNode {
@@ -709,8 +676,8 @@ class FieldDeclNode extends DeclNode {
         myId.setOffset(offset);
     }
 
-    public void codeGen(){
-        myId.codeGen();
+    public void lower(IrProgram program){
+        program.addGlobal(myId.getSym());
     }
     // 2 kids
     private TypeNode myType;
@@ -742,13 +709,21 @@ class VarDeclNode extends DeclNode {
         myId.setOffset(offset);
     }
 
-    public void codeGen(){
-        myId.codeGen();
-    }
-
 }
 
 abstract class MethodDeclNode extends DeclNode{
+    protected void lowerMethod(IrProgram program, IdNode id, FormalsNode formals,
+                               MethodBodyNode body, boolean returnsValue){
+        IrMethod method = new IrMethod(program, id.getName(), returnsValue);
+        IrBuilder b = new IrBuilder(method);
+        formals.lower(b);
+        body.lower(b);
+        if(!b.isTerminated())
+        {
+            b.emit(new ReturnInstr(returnsValue ? new Const(0) : null));
+        }
+        program.addMethod(method);
+    }
 }
 
 class MethodDeclVoidNode extends MethodDeclNode {
@@ -788,35 +763,8 @@ class MethodDeclVoidNode extends MethodDeclNode {
         }
     }
 
-    public void codeGen(){
-        if(!isFirst)
-        {
-            Codegen.generate("j","_main");
-            isFirst = true;
-        }
-        if(myId.getName().equals("main"))
-        {
-            Codegen.genLabel("_main");
-
-        }
-        else {
-            Codegen.genLabel(myId.getName());
-        }
-        Codegen.genPush(Codegen.FP);
-        Codegen.genPush("$ra");
-        Codegen.generate("move",Codegen.FP, Codegen.SP);
-        //Codegen.generateIndexed("la","$t0", Codegen.SP,0);
-        myFormals.codeGen();
-        myBody.codeGen();
-        Codegen.generate("move",Codegen.SP,Codegen.FP);
-        Codegen.genPop("$ra");
-        //Codegen.generate("la",, "$t0");
-        Codegen.genPop(Codegen.FP);
-        //Codegen.generate("move",Codegen.FP, "$t0");
-        if(!myId.getName().equals("main"))
-        {
-            Codegen.generate("jr","$ra");
-        }
+    public void lower(IrProgram program){
+        lowerMethod(program, myId, myFormals, myBody, false);
     }
 
     // 3 kids
@@ -868,32 +816,8 @@ class MethodDeclIntNode extends MethodDeclNode {
 
     }
 
-    public void codeGen(){
-
-        if(!isFirst)
-        {
-            Codegen.generate("j","_main");
-            isFirst = true;
-        }
-        if(myId.getName().equals("main"))
-        {
-            Codegen.genLabel("_main");
-
-        }
-        else {
-            myId.codeGen();
-        }
-        Codegen.genPush(Codegen.FP);
-        Codegen.genPush("$ra");
-        Codegen.generate("move",Codegen.FP, Codegen.SP);
-        //Codegen.generateIndexed("la","$t0", Codegen.SP,0);
-        myFormals.codeGen();
-        myBody.codeGen();
-        //Codegen.generate("move",Codegen.FP, "$t0");
-        if(!myId.getName().equals("main"))
-        {
-            Codegen.generate("jr","$ra");
-        }
+    public void lower(IrProgram program){
+        lowerMethod(program, myId, myFormals, myBody, true);
     }
 
     // 3 kids
@@ -930,8 +854,8 @@ class FormalDeclNode extends DeclNode {
     public void checkType(int offset){
         myId.setOffset(offset);
     }
-    public void codeGen(){
-        myId.codeGen();
+    public void lower(IrBuilder b){
+        b.getMethod().addParam(myId.getSym());
     }
 
     //
@@ -960,8 +884,8 @@ class FormalsNode extends DeclNode {
     public void checkType(int offset){
         myList.checkType(offset);
     }
-    public void codeGen(){
-        myList.codeGen();
+    public void lower(IrBuilder b){
+        myList.lower(b);
     }
     // 2 kids
     private FormalsListNode myList;
@@ -987,10 +911,6 @@ class IntNode extends TypeNode
     public int getType() {
         return Types.IntType;
     }
-
-    public void codeGen(){
-
-    }
 }
 
 class BooleanNode extends TypeNode
@@ -1006,9 +926,6 @@ class BooleanNode extends TypeNode
     public int getType() {
         return Types.BoolType;
     }
-    public void codeGen(){
-
-    }
 }
 
 class StringNode extends TypeNode
@@ -1024,10 +941,6 @@ class StringNode extends TypeNode
     public int getType() {
         return Types.StringType;
     }
-    public void codeGen(){
-
-    }
-
 }
 
 // **********************************************************************
@@ -1037,6 +950,7 @@ class StringNode extends TypeNode
 abstract class StmtNode extends ASTnode {
     public abstract void checkName(SymbolTable st);
     public abstract int checkType(int expected);
+    public abstract void lower(IrBuilder b);
 }
 
 class PrintStmtNode extends StmtNode {
@@ -1059,28 +973,8 @@ class PrintStmtNode extends StmtNode {
         myExpType = myExp.checkType();
         return Types.MethodType;
     }
-    public void codeGen(){
-        myExp.codeGen();
-
-
-        int syscall = 1;
-
-        switch (myExpType){
-            case Types.IntType: syscall = 1;
-                break;
-            case Types.StringType: syscall = 4;
-                break;
-            case Types.BoolType: syscall = 4;
-                Codegen.generate("jal", "_printBool");
-                break;
-            default: syscall = 1;
-        }
-        Codegen.genPop("$a0");
-        Codegen.generate("li", "$v0",syscall);
-        Codegen.generate("syscall");
-        Codegen.generate("la","$a0","_newLine");
-        Codegen.generate("li", "$v0",4);
-        Codegen.generate("syscall");
+    public void lower(IrBuilder b){
+        b.emit(new PrintInstr(myExpType, myExp.lower(b)));
     }
     // 1 kid
     private ExpNode myExp;
@@ -1121,12 +1015,8 @@ class AssignStmtNode extends StmtNode {
         }
         return returnVal;
     }
-    public void codeGen(){
-        myExp.codeGen();
-        myId.codeGenAssign();
-        Codegen.genPop("$t0");
-        Codegen.genPop("$t1");
-        Codegen.generateIndexed("sw","$t1","$t0",0,"Assign");
+    public void lower(IrBuilder b){
+        b.assign(new Var(myId.getSym()), myExp.lower(b));
     }
     // 2 kids
     private int myLineNum;
@@ -1172,13 +1062,13 @@ class IfStmtNode extends StmtNode {
         }
         return myStmtList.checkType(expected);
     }
-    public void codeGen(){
-        myExp.codeGen();
-        Codegen.genPop("$t0");
-        String label = Codegen.nextLabel();
-        Codegen.generate("beq","$t0","0", label);
-        myStmtList.codeGen();
-        Codegen.genLabel(label);
+    public void lower(IrBuilder b){
+        BasicBlock thenBlock = b.newBlock();
+        BasicBlock join = b.newBlock();
+        myExp.lowerCond(b, thenBlock, join);
+        b.placeBlock(thenBlock);
+        myStmtList.lower(b);
+        b.placeBlock(join);
     }
     // 2 kids
 
@@ -1238,17 +1128,20 @@ class IfElseStmtNode extends StmtNode {
         }
         return expected;
     }
-    public void codeGen(){
-        myExp.codeGen();
-        Codegen.genPop("$t0");
-        String labelTrue = Codegen.nextLabel();
-        String labelFalse = Codegen.nextLabel();
-        Codegen.generate("beq","$t0","0", labelFalse);
-        myThenStmtList.codeGen();
-        Codegen.generate("j",labelTrue);
-        Codegen.genLabel(labelFalse);
-        myElseStmtList.codeGen();
-        Codegen.genLabel(labelTrue);
+    public void lower(IrBuilder b){
+        BasicBlock thenBlock = b.newBlock();
+        BasicBlock elseBlock = b.newBlock();
+        BasicBlock join = b.newBlock();
+        myExp.lowerCond(b, thenBlock, elseBlock);
+        b.placeBlock(thenBlock);
+        myThenStmtList.lower(b);
+        if(!b.isTerminated())
+        {
+            b.emit(new JumpInstr(join));
+        }
+        b.placeBlock(elseBlock);
+        myElseStmtList.lower(b);
+        b.placeBlock(join);
     }
     // 3 kids
     private int myLineNum;
@@ -1299,15 +1192,14 @@ class WhileStmtNode extends StmtNode {
 
         return stmtVal;
     }
-    public void codeGen(){
-        String label = Codegen.nextLabel();
-        Codegen.genLabel(label);
-        myStmtList.codeGen();
-
-        myExp.codeGen();
-        Codegen.genPop("$t0");
-        Codegen.generate("beq","$t0","-1", label);
+    public void lower(IrBuilder b){
+        BasicBlock body = b.newBlock();
+        BasicBlock exit = b.newBlock();
+        b.placeBlock(body);
+        myStmtList.lower(b);
 
+        myExp.lowerCond(b, body, exit);
+        b.placeBlock(exit);
     }
     //
     private int myLineNum;
@@ -1353,11 +1245,10 @@ class CallStmtNode extends StmtNode {
         }
         return myId.checkType();
     }
-    public void codeGen(){
-
-        myExpList.codeGen(); //8 vom Pointer aus füllen
-        myId.codeGen();
-
+    public void lower(IrBuilder b){
+        Operand[] args = myExpList.lower(b);
+        boolean returnsValue = myId.checkType() != Types.MethodType;
+        b.emit(new CallInstr(null, myId.getName(), returnsValue, args));
     }
     //
     private int myLineNum;
@@ -1426,21 +1317,12 @@ class ReturnStmtNode extends StmtNode {
         }
         return expVal;
     }
-    public void codeGen(){
+    public void lower(IrBuilder b){
+        Operand value = null;
         if(myExp != null) {
-            myExp.codeGen();
-            Codegen.genPop("$t0");
+            value = myExp.lower(b);
         }
-        Codegen.generate("move",Codegen.SP,Codegen.FP);
-        Codegen.genPop("$ra");
-        Codegen.genPop(Codegen.FP);
-
-        if(myExp!=null)
-        {
-            Codegen.genPush("$t0");
-        }
-
-        Codegen.generate("jr", "$ra");
+        b.emit(new ReturnInstr(value));
     }
     //
     private ExpNode myExp;
@@ -1481,8 +1363,8 @@ class BracketStmtNode extends StmtNode{
         return myStmtList.checkType(expected);
     }
 
-    public void codeGen(){
-
+    public void lower(IrBuilder b){
+        myStmtList.lower(b);
     }
 
     private VarDeclListNode myVarDeclList;
@@ -1498,6 +1380,43 @@ abstract class ExpNode extends ASTnode {
     public abstract int checkType();
     public abstract int getLineNum();
     public abstract int getCharNum();
+
+    // true if evaluating this expression may call a method
+    public boolean hasCall(){
+        return false;
+    }
+
+    // true if evaluating this expression may fail at run time other
+    // than in a method it calls (a division by zero)
+    public boolean mayFail(){
+        return false;
+    }
+
+    // append the instructions computing this expression, return the
+    // operand that holds its value
+    public abstract Operand lower(IrBuilder b);
+
+    // append the instructions evaluating this boolean expression, ending
+    // in a branch to ifTrue if it is true and to ifFalse otherwise
+    public void lowerCond(IrBuilder b, BasicBlock ifTrue, BasicBlock ifFalse){
+        b.emit(new BranchInstr(Op.NE, lower(b), new Const(0), ifTrue, ifFalse));
+    }
+
+    // the value of a boolean expression computed by its lowerCond
+    protected Operand lowerByBranches(IrBuilder b){
+        Temp result = b.newTemp(Types.BoolType);
+        BasicBlock isTrue = b.newBlock();
+        BasicBlock isFalse = b.newBlock();
+        BasicBlock join = b.newBlock();
+        lowerCond(b, isTrue, isFalse);
+        b.placeBlock(isTrue);
+        b.emit(new MoveInstr(result, new Const(Integer.parseInt(Codegen.TRUE))));
+        b.emit(new JumpInstr(join));
+        b.placeBlock(isFalse);
+        b.emit(new MoveInstr(result, new Const(Integer.parseInt(Codegen.FALSE))));
+        b.placeBlock(join);
+        return result;
+    }
 }
 
 class IntLitNode extends ExpNode {
@@ -1524,9 +1443,12 @@ class IntLitNode extends ExpNode {
         return myColNum;
     }
 
-    public void codeGen(){
-        Codegen.generate("li", "$t0", myIntVal);
-        Codegen.genPush("$t0");
+    public int getValue(){
+        return myIntVal;
+    }
+
+    public Operand lower(IrBuilder b){
+        return new Const(myIntVal);
     }
 
     private int myLineNum;
@@ -1558,13 +1480,8 @@ class StringLitNode extends ExpNode {
         return myColNum;
     }
 
-    public void codeGen(){
-        String label = Codegen.nextLabel();
-        Codegen.dataSegment();
-        Codegen.generateLabeled(label,".asciiz\t","Erster Stringtest", "\"" + myStrVal + "\"");
-        Codegen.textSegment();
-        Codegen.generate("la", "$t0", label);
-        Codegen.genPush("$t0");
+    public Operand lower(IrBuilder b){
+        return new StrConst(myStrVal);
     }
 
     private int myLineNum;
@@ -1596,9 +1513,8 @@ class TrueNode extends ExpNode {
         return myColNum;
     }
 
-    public void codeGen(){
-        Codegen.generate("li","$t0","-1");
-        Codegen.genPush("$t0");
+    public Operand lower(IrBuilder b){
+        return new Const(Integer.parseInt(Codegen.TRUE));
     }
 
     private int myLineNum;
@@ -1627,9 +1543,8 @@ class FalseNode extends ExpNode {
         return myColNum;
     }
 
-    public void codeGen(){
-        Codegen.generate("li","$t0","0");
-        Codegen.genPush("$t0");
+    public Operand lower(IrBuilder b){
+        return new Const(Integer.parseInt(Codegen.FALSE));
     }
 
     private int myLineNum;
@@ -1679,9 +1594,15 @@ class CallExpNode extends ExpNode {
         return myCharNum;
     }
 
-    public void codeGen(){
-        myExpList.codeGen();
-        myId.codeGen();
+    public boolean hasCall(){
+        return true;
+    }
+
+    public Operand lower(IrBuilder b){
+        Operand[] args = myExpList.lower(b);
+        Temp result = b.newTemp(myId.checkType());
+        b.emit(new CallInstr(result, myId.getName(), true, args));
+        return result;
     }
 
     // 2 kids
@@ -1724,8 +1645,20 @@ class BracketsNode extends ExpNode{
         return myCharNum;
     }
 
-    public void codeGen(){
-        myExp.codeGen();
+    public boolean hasCall(){
+        return myExp.hasCall();
+    }
+
+    public boolean mayFail(){
+        return myExp.mayFail();
+    }
+
+    public Operand lower(IrBuilder b){
+        return myExp.lower(b);
+    }
+
+    public void lowerCond(IrBuilder b, BasicBlock ifTrue, BasicBlock ifFalse){
+        myExp.lowerCond(b, ifTrue, ifFalse);
     }
 
     private ExpNode myExp;
@@ -1802,69 +1735,12 @@ class IdNode extends ExpNode{
         return myRef.getOffset();
     }
 
-    public void codeGen(){
-
-        if(myType == Types.MethodType)
-        {
-            if(!isDeclaration){
-                Codegen.generate("jal", myStrVal);
-            }
-            else {
-                Codegen.genLabel(myStrVal);
-            }
-        }
-        else
-        {
-            if(isDeclaration){
-                //System.out.println("new Var: " + myRef.name());
-//                Codegen.generate("li", "$t0", 0);
-//                Codegen.generateIndexed("sw","$t0", Codegen.SP,0);
-                Codegen.generateWithComment("subu","Param/VarDecl", Codegen.SP, Codegen.SP, "4");
-
-            }
-            else
-            {   //find varialble in stack via offset (from framepointer)
-                //Prüfung auf Global
-
-                if(myRef.isGlobal())
-                {
-                    Codegen.generate("subu", "$t0" , "$s1" , myRef.getOffset());
-                }
-                else
-                {
-                    Codegen.generate("subu", "$t0" , "$fp" , myRef.getOffset());
-                }
-
-                //return value
-                Codegen.generateIndexed("lw", "$t1", "$t0",0);
-                Codegen.genPush("$t1");
-            }
-        }
-        /*
-        setVariable;
-         */
+    public SymbolTable.Sym getSym() {
+        return myRef;
     }
 
-    public void codeGenAssign(){
-        //find adress in stack (from framepointer)
-        // return offset
-        if(myRef.isGlobal())
-        {
-            Codegen.generate("subu", "$t0" , "$s1" , myRef.getOffset());
-        }
-        else
-        {
-            Codegen.generate("subu", "$t0" , "$fp" , myRef.getOffset());
-        }
-
-        Codegen.genPush("$t0");
-        //operation mit diesem zielregister
-        //Im assign: sw $t0, [offset]($fp)
-        //pop(t0)
-        //copy fp in s1
-        //s1 - t0
-        //sw s1
-
+    public Operand lower(IrBuilder b){
+        return new Var(myRef);
     }
 
     public void setGlobal()
@@ -1893,6 +1769,24 @@ abstract class UnaryExpNode extends ExpNode {
 
     }
 
+    public boolean hasCall(){
+        return myExp.hasCall();
+    }
+
+    public boolean mayFail(){
+        return myExp.mayFail();
+    }
+
+    public Operand lower(IrBuilder b){
+        Operand value = myExp.lower(b);
+        Temp result = b.newTemp(Op.resultType(getOp()));
+        b.emit(new UnInstr(getOp(), result, value));
+        return result;
+    }
+
+    // IR operator of this node
+    public abstract int getOp();
+
     // one child
     protected ExpNode myExp;
 }
@@ -1908,10 +1802,47 @@ abstract class BinaryExpNode extends ExpNode{
         myExp2.checkName(st);
     }
 
-    public void codeGen(){
-        //Codegen.generate("addi","$s0","$s1",4);
+    public boolean hasCall(){
+        return myExp1.hasCall() || myExp2.hasCall();
+    }
+
+    public boolean mayFail(){
+        return myExp1.mayFail() || myExp2.mayFail();
+    }
+
+    public Operand lower(IrBuilder b){
+        Operand[] operands = lowerOperands(b);
+        Temp result = b.newTemp(Op.resultType(getOp()));
+        b.emit(new BinInstr(getOp(), result, operands[0], operands[1]));
+        return result;
+    }
+
+    // compares branch on their operands directly
+    public void lowerCond(IrBuilder b, BasicBlock ifTrue, BasicBlock ifFalse){
+        if(!Op.isCompare(getOp()))
+        {
+            super.lowerCond(b, ifTrue, ifFalse);
+            return;
+        }
+        Operand[] operands = lowerOperands(b);
+        b.emit(new BranchInstr(getOp(), operands[0], operands[1], ifTrue, ifFalse));
     }
 
+    // lower both operands, left to right, return {left, right}
+    protected Operand[] lowerOperands(IrBuilder b){
+        Operand left = myExp1.lower(b);
+        //a call on the right may change a global read on the left
+        if(myExp2.hasCall())
+        {
+            left = b.freeze(left);
+        }
+        Operand right = myExp2.lower(b);
+        return new Operand[]{left, right};
+    }
+
+    // IR operator of this node
+    public abstract int getOp();
+
     // two kids
     protected ExpNode myExp1;
     protected ExpNode myExp2;
@@ -1963,12 +1894,8 @@ class UnaryMinusNode extends UnaryExpNode
         return myColNum;
     }
 
-    public void codeGen(){
-        myExp.codeGen();
-        Codegen.genPop("$t0");
-        Codegen.generate("li", "$t1", "-1");
-        Codegen.generate("mul", "$t0", "$t0", "$t1");
-        Codegen.genPush("$t0");
+    public int getOp(){
+        return Op.NEG;
     }
 
     int myLineNum;
@@ -2017,11 +1944,12 @@ class NotNode extends UnaryExpNode
         return myColNum;
     }
 
-    public void codeGen(){
-        myExp.codeGen();;
-        Codegen.genPop("$t0");
-        Codegen.generate("nor", "$t0", "$t0", "$t0");
-        Codegen.genPush("$t0");
+    public int getOp(){
+        return Op.NOT;
+    }
+
+    public void lowerCond(IrBuilder b, BasicBlock ifTrue, BasicBlock ifFalse){
+        myExp.lowerCond(b, ifFalse, ifTrue);
     }
 
     int myLineNum;
@@ -2077,13 +2005,8 @@ class PlusNode extends BinaryExpNode
         return myColNum;
     }
 
-    public void codeGen(){
-        myExp1.codeGen();
-        myExp2.codeGen();
-        Codegen.genPop("$t1");
-        Codegen.genPop("$t0");
-        Codegen.generate("add", "$t0", "$t0","$t1");
-        Codegen.genPush("$t0");
+    public int getOp(){
+        return Op.ADD;
     }
 
     int myLineNum;
@@ -2135,13 +2058,8 @@ class MinusNode extends BinaryExpNode
         return myColNum;
     }
 
-    public void codeGen(){
-        myExp1.codeGen();
-        myExp2.codeGen();
-        Codegen.genPop("$t1");
-        Codegen.genPop("$t0");
-        Codegen.generate("sub", "$t0", "$t0", "$t1");
-        Codegen.genPush("$t0");
+    public int getOp(){
+        return Op.SUB;
     }
 
     int myLineNum;
@@ -2192,13 +2110,8 @@ class TimesNode extends BinaryExpNode
         return myColNum;
     }
 
-    public void codeGen(){
-        myExp1.codeGen();
-        myExp2.codeGen();
-        Codegen.genPop("$t1");
-        Codegen.genPop("$t0");
-        Codegen.generate("mul", "$t0", "$t0", "$t1");
-        Codegen.genPush("$t0");
+    public int getOp(){
+        return Op.MUL;
     }
 
     int myLineNum;
@@ -2250,24 +2163,8 @@ class PowerNode extends BinaryExpNode
         return myColNum;
     }
 
-    public void codeGen(){
-        myExp1.codeGen();
-        myExp2.codeGen();
-        Codegen.genPop("$t0"); //Potenz
-        Codegen.genPop("$t1"); //Exponent
-
-        Codegen.generate("addi", "$t3", 1); //Ergebnis
-
-        String label = Codegen.nextLabel();
-        String end = Codegen.nextLabel();
-        Codegen.genLabel(label);
-        Codegen.generate("beq", "$t0", "$0", end);
-        Codegen.generate("mul", "$t3", "$t3" ,"$t1");
-        Codegen.generate("sub", "$t0", "$t0", 1);
-        Codegen.generate("j", label);
-
-        Codegen.genLabel(end);
-        Codegen.genPush("$t3");
+    public int getOp(){
+        return Op.POW;
     }
 
     int myLineNum;
@@ -2319,13 +2216,14 @@ class DivideNode extends BinaryExpNode
         return myColNum;
     }
 
-    public void codeGen(){
-        myExp1.codeGen();
-        myExp2.codeGen();
-        Codegen.genPop("$t1");
-        Codegen.genPop("$t0");
-        Codegen.generate("div" , "$t0", "$t0", "$t1");
-        Codegen.genPush("$t0");
+    public int getOp(){
+        return Op.DIV;
+    }
+
+    //only a literal divisor other than 0 is known not to be 0
+    public boolean mayFail(){
+        return super.mayFail() || !(myExp2 instanceof IntLitNode)
+                || ((IntLitNode) myExp2).getValue() == 0;
     }
 
     int myLineNum;
@@ -2377,13 +2275,24 @@ class AndNode extends BinaryExpNode
         return myColNum;
     }
 
-    public void codeGen(){
-        myExp1.codeGen();
-        myExp2.codeGen();
-        Codegen.genPop("$t1");
-        Codegen.genPop("$t0");
-        Codegen.generate("and", "$t0", "$t0", "$t1");
-        Codegen.genPush("$t0");
+    public int getOp(){
+        return Op.AND;
+    }
+
+    public Operand lower(IrBuilder b){
+        //the right side must not be evaluated if the left one is false
+        if(myExp2.hasCall() || myExp2.mayFail())
+        {
+            return lowerByBranches(b);
+        }
+        return super.lower(b);
+    }
+
+    public void lowerCond(IrBuilder b, BasicBlock ifTrue, BasicBlock ifFalse){
+        BasicBlock right = b.newBlock();
+        myExp1.lowerCond(b, right, ifFalse);
+        b.placeBlock(right);
+        myExp2.lowerCond(b, ifTrue, ifFalse);
     }
 
     int myLineNum;
@@ -2435,13 +2344,24 @@ class OrNode extends BinaryExpNode
         return myColNum;
     }
 
-    public void codeGen(){
-        myExp1.codeGen();
-        myExp2.codeGen();
-        Codegen.genPop("$t1");
-        Codegen.genPop("$t0");
-        Codegen.generate("or", "$t0", "$t0", "$t1");
-        Codegen.genPush("$t0");
+    public int getOp(){
+        return Op.OR;
+    }
+
+    public Operand lower(IrBuilder b){
+        //the right side must not be evaluated if the left one is true
+        if(myExp2.hasCall() || myExp2.mayFail())
+        {
+            return lowerByBranches(b);
+        }
+        return super.lower(b);
+    }
+
+    public void lowerCond(IrBuilder b, BasicBlock ifTrue, BasicBlock ifFalse){
+        BasicBlock right = b.newBlock();
+        myExp1.lowerCond(b, ifTrue, right);
+        b.placeBlock(right);
+        myExp2.lowerCond(b, ifTrue, ifFalse);
     }
 
     int myLineNum;
@@ -2494,12 +2414,8 @@ class EqualsNode extends BinaryExpNode
         return myColNum;
     }
 
-    public void codeGen(){
-        myExp1.codeGen();
-        myExp2.codeGen();
-        Codegen.genPop("$t1");
-        Codegen.genPop("$t0");
-        Codegen.genCompare("beq");
+    public int getOp(){
+        return Op.EQ;
     }
 
     int myLineNum;
@@ -2552,12 +2468,8 @@ class NotEqualsNode extends BinaryExpNode
         return myColNum;
     }
 
-    public void codeGen(){
-        myExp1.codeGen();
-        myExp2.codeGen();
-        Codegen.genPop("$t1");
-        Codegen.genPop("$t0");
-        Codegen.genCompare("bne");
+    public int getOp(){
+        return Op.NE;
     }
 
     int myLineNum;
@@ -2609,12 +2521,8 @@ class LessNode extends BinaryExpNode
         return myColNum;
     }
 
-    public void codeGen(){
-        myExp1.codeGen();
-        myExp2.codeGen();
-        Codegen.genPop("$t1");
-        Codegen.genPop("$t0");
-        Codegen.genCompare("blt");
+    public int getOp(){
+        return Op.LT;
     }
 
     int myLineNum;
@@ -2666,12 +2574,8 @@ class GreaterNode extends BinaryExpNode
         return myColNum;
     }
 
-    public void codeGen(){
-        myExp1.codeGen();
-        myExp2.codeGen();
-        Codegen.genPop("$t1");
-        Codegen.genPop("$t0");
-        Codegen.genCompare("bgt");
+    public int getOp(){
+        return Op.GT;
     }
 
     int myLineNum;
@@ -2722,12 +2626,8 @@ class LessEqNode extends BinaryExpNode
         return myColNum;
     }
 
-    public void codeGen(){
-        myExp1.codeGen();
-        myExp2.codeGen();
-        Codegen.genPop("$t1");
-        Codegen.genPop("$t0");
-        Codegen.genCompare("ble");
+    public int getOp(){
+        return Op.LE;
     }
 
     int myLineNum;
@@ -2772,12 +2672,8 @@ class GreaterEqNode extends BinaryExpNode
         return returnVal;
     }
 
-    public void codeGen(){
-        myExp1.codeGen();
-        myExp2.codeGen();
-        Codegen.genPop("$t1");
-        Codegen.genPop("$t0");
-        Codegen.genCompare("bge");
+    public int getOp(){
+        return Op.GE;
     }
 
     public int getLineNum(){
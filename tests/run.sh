@@ -0,0 +1,61 @@
+#!/bin/sh
+# **********************************************************************
+# Runs the test programs. Every tests/NAME.sim is compiled with P5 and
+# run on SPIM twice: as SPIM runs code by default (no delay slots), and
+# compiled with -delay on SPIM's delayed branch mode. Both runs have to
+# print exactly what tests/NAME.exp holds.
+#
+# Run it from anywhere once the compiler is built:
+#     sh tests/run.sh [NAME ...]
+# CP, the class path of the compiler (default: the project directory
+# and jar/java-cup-11b.jar), and SPIM (default: spim) can be set in the
+# environment.
+# **********************************************************************
+
+cd "$(dirname "$0")/.." || exit 1
+root=$(pwd)
+CP=${CP:-$root:$root/jar/java-cup-11b.jar}
+SPIM=${SPIM:-spim}
+work=$(mktemp -d) || exit 1
+trap 'rm -rf "$work"' EXIT
+
+if [ $# -eq 0 ]; then
+    set -- $(cd tests && ls *.sim | sed 's/\.sim$//')
+fi
+
+failed=0
+for name in "$@"; do
+    for mode in spim delay; do
+        if [ $mode = delay ]; then
+            flag=-delay
+            spimflag=-delayed_branches
+        else
+            flag=
+            spimflag=
+        fi
+        rm -f "$work"/*
+        #P5 writes Assembler.a into the current directory
+        (cd "$work" && java -cp "$CP" P5 "$root/tests/$name.sim" unparsed.txt $flag \
+            > compile.log 2>&1)
+        if ! grep -q "Code generation complete" "$work/compile.log"; then
+            echo "FAIL $name ($mode): not compiled"
+            sed 's/^/    /' "$work/compile.log"
+            failed=$((failed + 1))
+            continue
+        fi
+        $SPIM $spimflag -file "$work/Assembler.a" 2>&1 | grep -v '^Loaded:' > "$work/output"
+        if cmp -s "$work/output" "tests/$name.exp"; then
+            echo "ok   $name ($mode)"
+        else
+            echo "FAIL $name ($mode)"
+            diff "tests/$name.exp" "$work/output" | head -10 | sed 's/^/    /'
+            failed=$((failed + 1))
+        fi
+    done
+done
+
+if [ $failed -gt 0 ]; then
+    echo "$failed failed"
+    exit 1
+fi
+echo "all passed"